@@ -0,0 +1,86 @@
+package op.congreso.pl.internal;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import op.congreso.pl.Periodo;
+import op.congreso.pl.ProyectosLey;
+import op.congreso.pl.ProyectosLeyMetadata;
+import org.jsoup.Jsoup;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parseo de las respuestas ya descargadas: pagina de la lista V1 (500 filas), expediente V1 (HTML)
+ * y expediente V2 (JSON). Las variantes {@code *Jsoup} construyen el DOM completo, como antes de
+ * {@link DominoHtml}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExtractionBenchmark {
+
+  static final String LISTA_URL = Periodo._2011_2016.baseUrl() + "&Start=1";
+
+  byte[] listaV1;
+  byte[] expedienteV1;
+  byte[] expedienteV2;
+  ProyectosLeyExtractionV1 listaExtraction;
+  ProyectosLeyMetadataExtractionV1.ProyectoLeyMetadataExtraction metadataV1;
+  ProyectosLeyMetadataExtractionV2.ProyectoLeyMetadataExtraction metadataV2;
+  ProyectosLey.ProyectoLey plV1;
+  ProyectosLey.ProyectoLey plV2;
+
+  @Setup
+  public void setup() {
+    listaV1 = Fixtures.bytes("v1-lista.html");
+    expedienteV1 = Fixtures.bytes("v1-expediente.html");
+    expedienteV2 = Fixtures.bytes("v2-expediente.json");
+    listaExtraction = new ProyectosLeyExtractionV1();
+    metadataV1 = new ProyectosLeyMetadataExtractionV1.ProyectoLeyMetadataExtraction();
+    metadataV2 = new ProyectosLeyMetadataExtractionV2.ProyectoLeyMetadataExtraction();
+    plV1 = Fixtures.proyectoLey(Periodo._2011_2016, 4066);
+    plV2 = Fixtures.proyectoLey(Periodo._2021_2026, 1234);
+  }
+
+  @Benchmark
+  public Set<ProyectosLey.ProyectoLey> listaV1() {
+    return listaExtraction.parsePaginaProyectos(Periodo._2011_2016, LISTA_URL, listaV1,
+        Optional.empty());
+  }
+
+  @Benchmark
+  public Set<ProyectosLey.ProyectoLey> listaV1Jsoup() throws IOException {
+    var doc = Jsoup.parse(new ByteArrayInputStream(listaV1), null, LISTA_URL);
+    return listaExtraction.parsePaginaProyectos(Periodo._2011_2016, doc);
+  }
+
+  @Benchmark
+  public ProyectosLeyMetadata.ProyectoLeyMetadata expedienteV1() {
+    return metadataV1.parse(plV1, expedienteV1, Optional.empty());
+  }
+
+  @Benchmark
+  public ProyectosLeyMetadata.ProyectoLeyMetadata expedienteV1Jsoup() throws IOException {
+    var doc = Jsoup.parse(new ByteArrayInputStream(expedienteV1), null, plV1.url());
+    return metadataV1.parse(plV1, doc);
+  }
+
+  @Benchmark
+  public ProyectosLeyMetadata.ProyectoLeyMetadata expedienteV2() {
+    return metadataV2.parse(plV2, expedienteV2);
+  }
+}
@@ -0,0 +1,87 @@
+package op.congreso.pl.internal;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import op.congreso.pl.Periodo;
+import op.congreso.pl.ProyectosLey;
+import op.congreso.pl.ProyectosLeyMetadata;
+
+/**
+ * Paginas de ejemplo (con la forma de las respuestas reales de www2 y wb2server) y periodos
+ * sinteticos para los benchmarks.
+ */
+final class Fixtures {
+
+  private Fixtures() {}
+
+  static byte[] bytes(String name) {
+    try (var in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+      if (in == null) throw new IllegalArgumentException("Fixture no encontrado: " + name);
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static ProyectosLey.ProyectoLey proyectoLey(Periodo periodo, int numero) {
+    return new ProyectosLey.ProyectoLey(periodo, numero,
+        Optional.of(LocalDate.of(2022, 3, 1)),
+        LocalDate.of(2021, 8, 10),
+        "EN COMISIÓN",
+        "LEY QUE PROMUEVE LA FORMALIZACIÓN DE LAS MICRO Y PEQUEÑAS EMPRESAS",
+        periodo.baseUrl() + "/" + numero);
+  }
+
+  /** Periodo con {@code n} proyectos de ley de tamaño tipico (5 autores, 8 seguimientos). */
+  static ProyectosLeyMetadata periodo(Periodo periodo, int n) {
+    var random = new Random(42);
+    var meta = new ProyectosLeyMetadata(periodo);
+    var proyectos = new LinkedHashSet<ProyectosLeyMetadata.ProyectoLeyMetadata>();
+    for (int i = 1; i <= n; i++) {
+      var autores = new LinkedHashSet<ProyectosLeyMetadata.Congresista>();
+      for (int j = 0; j < 5; j++) autores.add(congresista(random.nextInt(130)));
+      var seguimientos = new LinkedHashSet<ProyectosLeyMetadata.Seguimiento>();
+      for (int j = 0; j < 8; j++) {
+        seguimientos.add(new ProyectosLeyMetadata.Seguimiento(
+            LocalDate.of(2022, 1, 1).plusDays(i % 300 + j),
+            "Detalle número " + j + " del proyecto " + i + " en comisión",
+            Optional.of("EN COMISIÓN " + (j % 4)),
+            Optional.of("Comisión " + (j % 10))));
+      }
+      proyectos.add(new ProyectosLeyMetadata.ProyectoLeyMetadata(
+          periodo,
+          i,
+          Optional.of("%05d/2021-CR".formatted(i)),
+          "Título del proyecto " + i,
+          "EN COMISIÓN",
+          LocalDate.of(2021, 8, 1).plusDays(i % 900),
+          Optional.of("Primera Legislatura Ordinaria 2021"),
+          Optional.of("Congreso"),
+          Optional.of("Sumilla del proyecto de ley número " + i),
+          Optional.of("GRUPO " + (i % 10)),
+          Optional.of(congresista(i % 130)),
+          autores,
+          Set.of(congresista(7)),
+          seguimientos,
+          new LinkedHashSet<>(List.of(new ProyectosLeyMetadata.Comision(i % 20, "Comisión " + (i % 20)))),
+          Optional.of("Comisión " + (i % 20)),
+          Optional.of(periodo.baseUrl() + "/expediente/" + i),
+          new LinkedHashSet<>(List.of(String.valueOf(i - 1)))));
+    }
+    meta.addAll(proyectos);
+    return meta;
+  }
+
+  static ProyectosLeyMetadata.Congresista congresista(int k) {
+    return new ProyectosLeyMetadata.Congresista("Apellido" + k + " Nombre" + k,
+        Optional.of("4000%04d".formatted(k)),
+        Optional.of(k % 2 == 0 ? "M" : "F"),
+        Optional.of("https://www.congreso.gob.pe/congresistas2021/" + k));
+  }
+}
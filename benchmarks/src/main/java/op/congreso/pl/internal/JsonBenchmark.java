@@ -0,0 +1,93 @@
+package op.congreso.pl.internal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import op.congreso.pl.Periodo;
+import op.congreso.pl.ProyectosLeyMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Serializacion de {@code ProyectosLeyMetadata}: en memoria ({@code String}), en flujo a disco y el
+ * snapshot Smile.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+  @Param({"1000"})
+  int proyectos;
+
+  ProyectosLeyMetadata meta;
+  String json;
+  Path dir;
+  Path file;
+  Path snapshot;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException {
+    meta = Fixtures.periodo(Periodo._2021_2026, proyectos);
+    json = meta.json();
+    dir = Files.createTempDirectory("json-bench");
+    file = dir.resolve("proyectos-ley.json");
+    meta.writeJson(file);
+    snapshot = dir.resolve("proyectos-ley.smile");
+    try (var writer = ProyectosLeyMetadata.JsonWriter.snapshot(snapshot)) {
+      for (var p : meta.proyectos()) writer.write(p);
+      writer.commit();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (var files = Files.list(dir)) {
+      for (var f : files.toList()) Files.delete(f);
+    }
+    Files.delete(dir);
+  }
+
+  @Benchmark
+  public String json() throws IOException {
+    return meta.json();
+  }
+
+  @Benchmark
+  public ProyectosLeyMetadata loadJson() throws IOException {
+    return new ProyectosLeyMetadata(Periodo._2021_2026).loadJson(json);
+  }
+
+  @Benchmark
+  public Path writeJson() throws IOException {
+    var out = dir.resolve("out.json");
+    meta.writeJson(out);
+    return out;
+  }
+
+  @Benchmark
+  public void readJson(Blackhole bh) throws IOException {
+    ProyectosLeyMetadata.readJson(file, bh::consume);
+  }
+
+  @Benchmark
+  public void readSnapshot(Blackhole bh) throws IOException {
+    ProyectosLeyMetadata.readSnapshot(snapshot, bh::consume);
+  }
+}
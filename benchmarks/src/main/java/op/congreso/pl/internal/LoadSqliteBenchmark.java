@@ -0,0 +1,79 @@
+package op.congreso.pl.internal;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+import op.congreso.pl.Periodo;
+import op.congreso.pl.ProyectosLeyMetadata;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Carga completa de un periodo a una base SQLite temporal, y una segunda pasada en modo upsert sin
+ * cambios (solo comparacion de huellas).
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LoadSqliteBenchmark {
+
+  @Param({"2000"})
+  int proyectos;
+
+  ProyectosLeyMetadata meta;
+  Path dir;
+  Path database;
+
+  @Setup(Level.Trial)
+  public void setup() throws IOException, SQLException {
+    meta = Fixtures.periodo(Periodo._2021_2026, proyectos);
+    dir = Files.createTempDirectory("sqlite-bench");
+    database = dir.resolve("proyectos-ley.db");
+  }
+
+  @Setup(Level.Invocation)
+  public void cargaInicial() throws SQLException {
+    load(false);
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws IOException {
+    try (var files = Files.list(dir)) {
+      for (var f : files.toList()) Files.delete(f);
+    }
+    Files.delete(dir);
+  }
+
+  @Benchmark
+  public void full() throws SQLException {
+    load(false);
+  }
+
+  @Benchmark
+  public void upsert() throws SQLException {
+    load(true);
+  }
+
+  void load(boolean upsert) throws SQLException {
+    try (var loader = ProyectosLeyLoadSqlite.open(database, upsert)) {
+      for (var m : meta.proyectos()) loader.accept(m);
+      loader.commit();
+    }
+  }
+}
@@ -0,0 +1,55 @@
+package op.congreso.pl.internal;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import op.congreso.pl.Periodo;
+
+/**
+ * Extraccion completa ({@link Periodo#collect()}) de cada periodo contra un {@link ReplayServer}
+ * local, reportando proyectos por segundo. Los argumentos son los periodos a extraer (p. ej.
+ * {@code _2016_2021 _2021_2026}); sin argumentos, todos. La concurrencia, los reintentos y las
+ * fallas del servidor se ajustan con las mismas propiedades de siempre ({@code congreso.fetch.*},
+ * {@code congreso.retry.*}, {@code congreso.replay.*}).
+ */
+public class ThroughputHarness {
+
+  public static void main(String[] args) throws Exception {
+    // el puerto se conoce antes de que Constants y Periodo lean las URLs base
+    try (var server = new ReplayServer(0, ReplayServer.Config.fromSystemProperties())) {
+      // dos nombres para el mismo servidor, para que V1 y V2 tengan su propio presupuesto por host
+      System.setProperty("congreso.url.v1", "http://127.0.0.1:" + server.port());
+      System.setProperty("congreso.url.v2", "http://localhost:" + server.port());
+      // sin cache, cada corrida hace todas las consultas
+      if (System.getProperty("congreso.cache.maxBytes") == null) {
+        System.setProperty("congreso.cache.maxBytes", "0");
+      }
+      server.start();
+
+      var periodos = args.length == 0
+          ? Arrays.asList(Periodo.values())
+          : Arrays.stream(args).map(Periodo::valueOf).toList();
+      var filas = new ArrayList<String>();
+      long totalProyectos = 0;
+      var inicio = System.nanoTime();
+      for (var periodo : periodos) {
+        var start = System.nanoTime();
+        var proyectos = periodo.collect().proyectos().size();
+        var segundos = (System.nanoTime() - start) / 1e9;
+        totalProyectos += proyectos;
+        filas.add("%-12s %8d PLs %8.1f s %10.1f PLs/s".formatted(
+            periodo.texto(), proyectos, segundos, proyectos / segundos));
+      }
+      var segundos = (System.nanoTime() - inicio) / 1e9;
+      filas.forEach(System.out::println);
+      System.out.printf("%-12s %8d PLs %8.1f s %10.1f PLs/s%n",
+          "total", totalProyectos, segundos, totalProyectos / segundos);
+      System.out.println(server.resumen());
+      // hilos del proceso, incluidos los del servidor de replay
+      System.out.printf("hilos: %d como maximo%n",
+          ManagementFactory.getThreadMXBean().getPeakThreadCount());
+    }
+    // hilos de consulta y de reintentos del proceso
+    System.exit(0);
+  }
+}
@@ -1,6 +1,9 @@
 package op.congreso.pl;
 
 public class Constants {
-  public static final String BASE_URL_V1 = "https://www2.congreso.gob.pe";
-  public static final String BASE_URL_V2 = "https://wb2server.congreso.gob.pe";
+  // se pueden redefinir para extraer desde otro servidor (p. ej. el de replay de benchmarks/)
+  public static final String BASE_URL_V1 =
+      System.getProperty("congreso.url.v1", "https://www2.congreso.gob.pe");
+  public static final String BASE_URL_V2 =
+      System.getProperty("congreso.url.v2", "https://wb2server.congreso.gob.pe");
 }
@@ -1,18 +1,34 @@
 package op.congreso.pl;
 
-import java.io.IOException;
 import java.util.Arrays;
+import op.congreso.pl.internal.Artifacts;
+import op.congreso.pl.internal.Metrics;
+import op.congreso.pl.internal.PeriodoScheduler;
+import op.congreso.pl.internal.ProyectosLeyLoadSqlite;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 public class Export {
-  public static void main(String[] args) {
-    Arrays.stream(Periodo.values()).parallel()
-//            .filter(periodo -> periodo.equals(Periodo._2021_2026))
-        .forEach(periodo -> {
-          try {
-            periodo.exportDbFromJson();
-          } catch (IOException e) {
-            e.printStackTrace();
-          }
-        });
+  static final Logger LOG = LoggerFactory.getLogger(Export.class);
+
+  public static void main(String[] args) throws Exception {
+    var opciones = Arrays.asList(args);
+    var incremental = opciones.contains("--incremental");
+    // con --combinada, ademas de la base de cada periodo se arma una con todos
+    var combinada = opciones.contains("--combinada");
+    var errores = new PeriodoScheduler(Arrays.asList(Periodo.values()))
+        .run(null, periodo -> periodo.exportDbFromJson(incremental));
+    if (combinada) {
+      if (errores.isEmpty()) {
+        var bases = Arrays.stream(Periodo.values()).map(Periodo::dbPath).toList();
+        ProyectosLeyLoadSqlite.merge(Periodo.dbPathCombinada(), bases);
+        Artifacts.publishExisting(Periodo.dbPathCombinada());
+        Metrics.shared().written(Periodo.dbPathCombinada());
+      } else {
+        LOG.error("Base combinada no generada, fallaron los periodos {}", errores.keySet());
+      }
+    }
+    Artifacts.writeManifest();
+    Metrics.shared().write();
   }
 }
@@ -1,18 +1,22 @@
 package op.congreso.pl;
 
-import java.io.IOException;
 import java.util.Arrays;
+import op.congreso.pl.internal.Artifacts;
+import op.congreso.pl.internal.Metrics;
+import op.congreso.pl.internal.PeriodoScheduler;
 
 public class Import {
   public static void main(String[] args) {
-    Arrays.stream(Periodo.values()).parallel()
-//            .filter(periodo -> periodo.equals(Periodo._2021_2026))
-        .forEach(periodo -> {
-          try {
-            periodo.importJson();
-          } catch (IOException e) {
-            e.printStackTrace();
-          }
-        });
+    var opciones = Arrays.asList(args);
+    var incremental = opciones.contains("--incremental");
+    // con --db cada periodo se carga a SQLite apenas termina su JSON
+    var db = opciones.contains("--db");
+    // con --acotado la memoria no crece con el tamaño de los periodos, ver Periodo.importJson
+    var acotado = opciones.contains("--acotado");
+    new PeriodoScheduler(Arrays.asList(Periodo.values()))
+        .run(periodo -> periodo.importJson(incremental, acotado),
+            db ? periodo -> periodo.exportDbFromJson(incremental) : null);
+    Artifacts.writeManifest();
+    Metrics.shared().write();
   }
 }
@@ -1,5 +1,8 @@
 package op.congreso.pl;
 
+import op.congreso.pl.internal.Artifacts;
+import op.congreso.pl.internal.Metrics;
+
 public class Main {
   public static void main(String[] args) {
     //Periodo._1995_2000.save();
@@ -35,5 +38,7 @@ public class Main {
     //}
 
     Periodo._2021_2026.load();
+    Artifacts.writeManifest();
+    Metrics.shared().write();
   }
 }
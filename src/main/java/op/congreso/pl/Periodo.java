@@ -1,14 +1,29 @@
 package op.congreso.pl;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
 import java.util.function.Function;
+import op.congreso.pl.internal.Artifacts;
+import op.congreso.pl.internal.Metrics;
+import op.congreso.pl.internal.ProyectosLeyChangeFeed;
+import op.congreso.pl.internal.ProyectosLeyJournal;
+import op.congreso.pl.internal.ProyectosLeyDelta;
+import op.congreso.pl.internal.ProyectosLeyExtraction;
 import op.congreso.pl.internal.ProyectosLeyExtractionV1;
 import op.congreso.pl.internal.ProyectosLeyLoadSqlite;
+import op.congreso.pl.internal.ProyectosLeyMetadataExtraction;
 import op.congreso.pl.internal.ProyectosLeyMetadataExtractionV1;
 import op.congreso.pl.internal.ProyectosLeyMetadataExtractionV2;
 import op.congreso.pl.internal.ProyectosLeyExtractionV2;
+import op.congreso.pl.internal.ProyectosLeyPipeline;
 
 import static op.congreso.pl.Constants.BASE_URL_V1;
 import static op.congreso.pl.Constants.BASE_URL_V2;
@@ -55,12 +70,12 @@ public enum Periodo {
   final int hasta;
   final String baseUrl;
   final int batchSize;
-  final Function<Periodo, ProyectosLey> extractProyectosLeyFunction;
-  final Function<ProyectosLey, ProyectosLeyMetadata> extractMetadataFunction;
+  final ProyectosLeyExtraction extractProyectosLeyFunction;
+  final ProyectosLeyMetadataExtraction extractMetadataFunction;
 
   Periodo(int desde, int hasta, String baseUrl, int batchSize,
-      Function<Periodo, ProyectosLey> extractProyectosLeyFunction,
-      Function<ProyectosLey, ProyectosLeyMetadata> extractMetadataFunction) {
+      ProyectosLeyExtraction extractProyectosLeyFunction,
+      ProyectosLeyMetadataExtraction extractMetadataFunction) {
     this.desde = desde;
     this.hasta = hasta;
     this.baseUrl = baseUrl;
@@ -85,8 +100,29 @@ public enum Periodo {
     return batchSize;
   }
 
+  /**
+   * Prioridad de las consultas del periodo cuando varios comparten un host: el periodo en curso
+   * ({@code _2021_2026}) primero y luego del mas reciente al mas antiguo.
+   */
+  public int prioridad() {
+    return ordinal();
+  }
+
+  /** Host al que se dirigen las consultas del periodo. */
+  public String host() {
+    return extractMetadataFunction.host();
+  }
+
   public ProyectosLeyMetadata collect() {
-    return extractMetadataFunction.apply(extractProyectosLeyFunction.apply(this));
+    var proyectos = new LinkedHashSet<ProyectosLeyMetadata.ProyectoLeyMetadata>();
+    pipeline().run(this, proyectos::add);
+    var meta = new ProyectosLeyMetadata(this);
+    meta.addAll(proyectos);
+    return meta;
+  }
+
+  ProyectosLeyPipeline pipeline() {
+    return new ProyectosLeyPipeline(extractProyectosLeyFunction, extractMetadataFunction);
   }
 
   public String texto() {
@@ -97,26 +133,246 @@ public enum Periodo {
     return Path.of(filename() + ".json");
   }
 
+  public Path listaPath() {
+    return Path.of(filename() + "-lista.json");
+  }
+
+  /** Snapshot binario (Smile) con los mismos registros que {@link #path()}. */
+  public Path snapshotPath() {
+    return Path.of(filename() + ".smile");
+  }
+
+  /** Cambios respecto de la extraccion anterior, ver {@link ProyectosLeyChangeFeed}. */
+  public Path cambiosPath() {
+    return Path.of(filename() + "-cambios.jsonl");
+  }
+
+  /** Registro de la importacion en curso, ver {@link ProyectosLeyJournal}. */
+  public Path journalPath() {
+    return Path.of(filename() + "-journal.jsonl");
+  }
+
+  /** Numeros de los proyectos que la ultima importacion no pudo extraer. */
+  public Path sinMetadatosPath() {
+    return Path.of(filename() + "-sin-metadatos.json");
+  }
+
+  public Path dbPath() {
+    return Path.of(filename() + ".db");
+  }
+
+  /** Base con todos los periodos, ver {@link ProyectosLeyLoadSqlite#merge(Path, java.util.List)}. */
+  public static Path dbPathCombinada() {
+    return Path.of("proyectos-ley.db");
+  }
+
   public String filename() {
     return "proyectos-ley-" + this.texto();
   }
 
   public void importJson() throws IOException {
-    var c = collect();
-    Files.writeString(path(), c.json());
+    importJson(false);
+  }
+
+  public void importJson(boolean incremental) throws IOException {
+    importJson(incremental, false);
+  }
+
+  /**
+   * Con {@code acotado} la memoria usada no crece con el periodo: en modo incremental la linea base
+   * se lee registro por registro del JSON anterior (ver {@link ProyectosLeyMetadata.JsonIndex}) en
+   * lugar de cargarse completa, y los registros sin cambios se escriben apenas llegan en lugar de
+   * retenerse hasta saber si el periodo cambio.
+   */
+  public void importJson(boolean incremental, boolean acotado) throws IOException {
+    Function<ProyectosLey.ProyectoLey, Optional<ProyectosLeyMetadata.ProyectoLeyMetadata>>
+        reutilizable = pl -> Optional.empty();
+    // la extraccion anterior tambien reemplaza a los expedientes que fallan hasta el final
+    var indice = indiceAnterior();
+    try {
+      if (incremental && indice != null) {
+        var listaAnterior = Files.exists(listaPath())
+            ? new ProyectosLey(this).loadJson(listaPath())
+            : null;
+        ProyectosLeyDelta delta;
+        if (acotado) {
+          delta = new ProyectosLeyDelta(listaAnterior, indice, extractMetadataFunction);
+        } else {
+          delta = new ProyectosLeyDelta(listaAnterior, loadFromJson(), extractMetadataFunction);
+        }
+        reutilizable = delta.sinMetadatos(sinMetadatosAnteriores())::reutilizable;
+      }
+      // el snapshot se cierra despues del JSON, asi su fecha de modificacion nunca es anterior
+      try (var journal = ProyectosLeyJournal.open(journalPath());
+          var cambios = changeFeed();
+          var snapshot = ProyectosLeyMetadata.JsonWriter.snapshot(snapshotPath());
+          var writer = ProyectosLeyMetadata.JsonWriter.publish(path())) {
+        var pipeline = new ProyectosLeyPipeline(extractProyectosLeyFunction,
+            extractMetadataFunction, reutilizable, journal, anterior(indice));
+        // en modo incremental, mientras todo coincide con la extraccion anterior (por hash de
+        // contenido) los registros se retienen sin serializar; si al final nada cambio, el JSON y
+        // el snapshot publicados se mantienen tal cual. Acotado, se escriben igual y solo se
+        // descartan los temporales
+        var iguales = new ArrayList<ProyectosLeyMetadata.ProyectoLeyMetadata>();
+        var lista = pipeline.run(this, m -> {
+          cambios.accept(m);
+          if (incremental && !acotado && cambios.sinCambios()) {
+            iguales.add(m);
+            return;
+          }
+          for (var igual : iguales) {
+            write(writer, igual);
+            write(snapshot, igual);
+          }
+          iguales.clear();
+          write(writer, m);
+          write(snapshot, m);
+        });
+        cambios.commit();
+        if (!incremental || !cambios.sinCambios()) {
+          for (var igual : iguales) {
+            write(writer, igual);
+            write(snapshot, igual);
+          }
+          writer.commit();
+          snapshot.commit();
+        }
+        // antes que la lista: si se cae en medio, se consulta de mas y no de menos
+        guardarSinMetadatos(pipeline.sinMetadatos());
+        lista.publish(listaPath());
+      }
+    } finally {
+      if (indice != null) indice.close();
+    }
+    // publicado el JSON, la siguiente importacion ya no retoma desde el registro
+    Files.deleteIfExists(journalPath());
+    Metrics.shared().written(cambiosPath());
+    Metrics.shared().written(path());
+    Metrics.shared().written(snapshotPath());
+    Metrics.shared().written(listaPath());
   }
 
   public void exportDbFromJson() throws IOException {
-    new ProyectosLeyLoadSqlite().accept(loadFromJson());
+    exportDbFromJson(false);
+  }
+
+  public void exportDbFromJson(boolean incremental) throws IOException {
+    try (var loader = ProyectosLeyLoadSqlite.open(this, incremental)) {
+      if (snapshotVigente()) {
+        ProyectosLeyMetadata.readSnapshot(snapshotPath(), loader);
+      } else {
+        ProyectosLeyMetadata.readJson(path(), loader);
+      }
+      loader.commit();
+    } catch (Exception e) {
+      throw new IOException("Error cargando a SQLite", e);
+    }
+    Artifacts.publishExisting(dbPath());
+    Metrics.shared().written(dbPath());
+  }
+
+  /** El snapshot existe y no es anterior al JSON (que pudo regenerarse sin snapshot). */
+  boolean snapshotVigente() throws IOException {
+    return Files.exists(snapshotPath()) && Files.exists(path())
+        && Files.getLastModifiedTime(snapshotPath()).compareTo(Files.getLastModifiedTime(path())) >= 0;
   }
 
   public void load() {
-    new ProyectosLeyLoadSqlite().accept(collect());
+    load(false);
+  }
+
+  public void load(boolean incremental) {
+    try (var indice = indiceAnterior();
+        var loader = ProyectosLeyLoadSqlite.open(this, incremental);
+        var journal = ProyectosLeyJournal.open(journalPath());
+        var cambios = changeFeed();
+        var snapshot = ProyectosLeyMetadata.JsonWriter.snapshot(snapshotPath());
+        var writer = ProyectosLeyMetadata.JsonWriter.publish(path())) {
+      var pipeline = new ProyectosLeyPipeline(extractProyectosLeyFunction, extractMetadataFunction,
+          pl -> Optional.empty(), journal, anterior(indice));
+      var lista = pipeline.run(this, m -> {
+        loader.accept(m);
+        write(writer, m);
+        write(snapshot, m);
+        cambios.accept(m);
+      });
+      // solo con la extraccion completa: si falla, la base, el JSON y el snapshot anteriores quedan
+      loader.commit();
+      writer.commit();
+      snapshot.commit();
+      cambios.commit();
+      guardarSinMetadatos(pipeline.sinMetadatos());
+      lista.publish(listaPath());
+    } catch (Exception e) {
+      throw new RuntimeException("Error", e);
+    }
+    // la base se comprime una vez cerrada, con los indices ya creados
+    try {
+      Files.deleteIfExists(journalPath());
+      Artifacts.publishExisting(dbPath());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    Metrics.shared().written(cambiosPath());
+    Metrics.shared().written(path());
+    Metrics.shared().written(snapshotPath());
+    Metrics.shared().written(listaPath());
+    Metrics.shared().written(dbPath());
+  }
+
+  Set<Integer> sinMetadatosAnteriores() throws IOException {
+    if (!Files.exists(sinMetadatosPath())) return Set.of();
+    return ProyectosLey.mapper.readValue(sinMetadatosPath().toFile(),
+        new TypeReference<TreeSet<Integer>>() {});
+  }
+
+  void guardarSinMetadatos(Set<Integer> numeros) throws IOException {
+    if (numeros.isEmpty()) {
+      Files.deleteIfExists(sinMetadatosPath());
+    } else {
+      ProyectosLey.mapper.writeValue(sinMetadatosPath().toFile(), new TreeSet<>(numeros));
+    }
+  }
+
+  /** Indice del JSON publicado por la extraccion anterior, o {@code null} si no hay. */
+  ProyectosLeyMetadata.JsonIndex indiceAnterior() throws IOException {
+    return Files.exists(path()) ? ProyectosLeyMetadata.JsonIndex.open(path()) : null;
+  }
+
+  static Function<ProyectosLey.ProyectoLey, Optional<ProyectosLeyMetadata.ProyectoLeyMetadata>>
+      anterior(ProyectosLeyMetadata.JsonIndex indice) {
+    if (indice == null) return pl -> Optional.empty();
+    return pl -> Optional.ofNullable(indice.get(pl.numero()))
+        .filter(anterior -> ProyectosLeyDelta.mismoProyecto(pl, anterior));
+  }
+
+  static void write(ProyectosLeyMetadata.JsonWriter writer, ProyectosLeyMetadata.ProyectoLeyMetadata m) {
+    try {
+      writer.write(m);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Feed de cambios con la extraccion anterior (snapshot o JSON) como base, si existe. */
+  ProyectosLeyChangeFeed changeFeed() throws IOException {
+    var cambios = ProyectosLeyChangeFeed.open(this, cambiosPath());
+    try {
+      if (snapshotVigente()) {
+        ProyectosLeyMetadata.readSnapshot(snapshotPath(), cambios::anterior);
+      } else if (Files.exists(path())) {
+        ProyectosLeyMetadata.readJson(path(), cambios::anterior);
+      }
+    } catch (IOException | RuntimeException e) {
+      cambios.close();
+      throw e;
+    }
+    return cambios;
   }
 
   private ProyectosLeyMetadata loadFromJson() throws IOException {
-    var json = Files.readString(path());
-    return new ProyectosLeyMetadata(this).loadJson(json);
+    var meta = new ProyectosLeyMetadata(this);
+    return snapshotVigente() ? meta.loadSnapshot(snapshotPath()) : meta.loadJson(path());
   }
 
   public String periodoId(String id) {
@@ -1,13 +1,30 @@
 package op.congreso.pl;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.IOException;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.Collections;
 import java.util.LinkedHashSet;
 import java.util.Optional;
 import java.util.Set;
+import op.congreso.pl.internal.Artifacts;
 
 public class ProyectosLey {
 
+  static ObjectMapper mapper = new ObjectMapper()
+      .registerModule(new JavaTimeModule())
+      .registerModule(new Jdk8Module())
+      .setDefaultPrettyPrinter(new DefaultPrettyPrinter())
+      .enable(SerializationFeature.INDENT_OUTPUT);
+
   public final Periodo periodo;
   Set<ProyectoLey> proyectos = new LinkedHashSet<>();
 
@@ -27,6 +44,32 @@ public class ProyectosLey {
     return Collections.unmodifiableSet(proyectos);
   }
 
+  public String json() throws JsonProcessingException {
+    return mapper.writeValueAsString(proyectos);
+  }
+
+  public ProyectosLey loadJson(String json) throws JsonProcessingException {
+    proyectos = mapper.readValue(json, new TypeReference<LinkedHashSet<ProyectoLey>>() {});
+    return this;
+  }
+
+  public ProyectosLey loadJson(Path path) throws IOException {
+    proyectos = mapper.readValue(path.toFile(), new TypeReference<LinkedHashSet<ProyectoLey>>() {});
+    return this;
+  }
+
+  /** Publica la lista en {@code path} (ver {@link Artifacts#publish(Path)}) sin armar el JSON. */
+  public void publish(Path path) throws IOException {
+    try (var artifact = Artifacts.publish(path)) {
+      // el artefacto se confirma abierto: cerrarlo antes lo descartaria
+      mapper.writer()
+          .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+          .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE)
+          .writeValue(artifact, proyectos);
+      artifact.commit();
+    }
+  }
+
   public record ProyectoLey (
       Periodo periodo,
       int numero,
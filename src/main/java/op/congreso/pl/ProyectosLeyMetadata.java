@@ -1,26 +1,56 @@
 package op.congreso.pl;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.LinkedHashSet;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
+import op.congreso.pl.internal.Artifacts;
+import op.congreso.pl.internal.ContentHash;
+import op.congreso.pl.internal.Interner;
 
 public class ProyectosLeyMetadata {
 
-  ObjectMapper mapper = new ObjectMapper()
+  static ObjectMapper mapper = new ObjectMapper()
       .registerModule(new JavaTimeModule())
       .registerModule(new Jdk8Module())
       .setDefaultPrettyPrinter(new DefaultPrettyPrinter())
       .enable(SerializationFeature.INDENT_OUTPUT);
 
+  // Smile con diccionario de nombres y de valores repetidos (estados, comisiones, congresistas)
+  static ObjectMapper smileMapper = new ObjectMapper(SmileFactory.builder()
+      .enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+      .build())
+      .registerModule(new JavaTimeModule())
+      .registerModule(new Jdk8Module());
+
   public final Periodo periodo;
   Set<ProyectoLeyMetadata> proyectos = new LinkedHashSet<>();
 
@@ -45,11 +75,181 @@ public class ProyectosLeyMetadata {
     proyectos = new LinkedHashSet<>();
     for (var i : set) {
       var p = mapper.treeToValue(i, ProyectoLeyMetadata.class);
-      proyectos.add(p);
+      proyectos.add(Interner.shared().proyecto(p));
     }
     return this;
   }
 
+  public void writeJson(Path path) throws IOException {
+    try (var writer = JsonWriter.open(path)) {
+      for (var p : proyectos) writer.write(p);
+      writer.commit();
+    }
+  }
+
+  public ProyectosLeyMetadata loadJson(Path path) throws IOException {
+    proyectos = new LinkedHashSet<>();
+    var interner = Interner.shared();
+    readJson(path, p -> proyectos.add(interner.proyecto(p)));
+    return this;
+  }
+
+  public ProyectosLeyMetadata loadSnapshot(Path path) throws IOException {
+    proyectos = new LinkedHashSet<>();
+    var interner = Interner.shared();
+    readSnapshot(path, p -> proyectos.add(interner.proyecto(p)));
+    return this;
+  }
+
+  /** Lee el arreglo JSON registro por registro, sin materializar el archivo completo. */
+  public static void readJson(Path path, Consumer<ProyectoLeyMetadata> consumer) throws IOException {
+    try (var parser = mapper.getFactory().createParser(path.toFile())) {
+      read(mapper, parser, path, consumer);
+    }
+  }
+
+  /**
+   * Como {@link #readJson(Path, Consumer)}, para el snapshot Smile escrito por
+   * {@link JsonWriter#snapshot(Path)}. El archivo se mapea en memoria en lugar de leerse por bloques.
+   */
+  public static void readSnapshot(Path path, Consumer<ProyectoLeyMetadata> consumer)
+      throws IOException {
+    try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+      var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      try (var parser = smileMapper.getFactory()
+          .createParser(new ByteBufferBackedInputStream(buffer))) {
+        read(smileMapper, parser, path, consumer);
+      }
+    }
+  }
+
+  static void read(ObjectMapper mapper, JsonParser parser, Path path,
+      Consumer<ProyectoLeyMetadata> consumer) throws IOException {
+    if (parser.nextToken() != JsonToken.START_ARRAY) {
+      throw new IllegalStateException("JSON array expected in " + path);
+    }
+    while (parser.nextToken() == JsonToken.START_OBJECT) {
+      consumer.accept(mapper.readValue(parser, ProyectoLeyMetadata.class));
+    }
+  }
+
+  /**
+   * Posicion de cada registro de un JSON escrito por {@link JsonWriter}, para leerlos de a uno
+   * cuando se necesitan en lugar de retener el archivo completo en memoria. Indexar el archivo lo
+   * recorre una vez sin construir registros.
+   */
+  public static class JsonIndex implements Closeable {
+    final FileChannel channel;
+    final Map<Integer, Long> posiciones = new HashMap<>();
+
+    JsonIndex(FileChannel channel) {
+      this.channel = channel;
+    }
+
+    public static JsonIndex open(Path path) throws IOException {
+      var index = new JsonIndex(FileChannel.open(path, StandardOpenOption.READ));
+      try (var parser = mapper.getFactory().createParser(path.toFile())) {
+        if (parser.nextToken() != JsonToken.START_ARRAY) {
+          throw new IllegalStateException("JSON array expected in " + path);
+        }
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+          var posicion = parser.getTokenLocation().getByteOffset();
+          var numero = -1;
+          while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            var campo = parser.getCurrentName();
+            parser.nextToken();
+            if (campo.equals("numero")) numero = parser.getIntValue();
+            else parser.skipChildren();
+          }
+          index.posiciones.put(numero, posicion);
+        }
+      } catch (IOException | RuntimeException e) {
+        index.close();
+        throw e;
+      }
+      return index;
+    }
+
+    /** Registro con {@code numero}, leido del archivo, o {@code null} si no esta. */
+    public synchronized ProyectoLeyMetadata get(int numero) {
+      var posicion = posiciones.get(numero);
+      if (posicion == null) return null;
+      try {
+        channel.position(posicion);
+        try (var parser = mapper.getFactory().createParser(Channels.newInputStream(channel))) {
+          // el canal se reutiliza para la siguiente lectura
+          parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+          return mapper.readValue(parser, ProyectoLeyMetadata.class);
+        }
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    public int size() {
+      return posiciones.size();
+    }
+
+    @Override public void close() throws IOException {
+      channel.close();
+    }
+  }
+
+  /**
+   * Escribe registros directamente al archivo a medida que se producen. El archivo se escribe en un
+   * temporal que reemplaza al destino solo si se llamo a {@link #commit()}, para no dejar un JSON a
+   * medias si la extraccion falla.
+   */
+  public static class JsonWriter implements Closeable {
+    final Artifacts.Artifact out;
+    final ObjectWriter writer;
+    final JsonGenerator generator;
+
+    JsonWriter(Artifacts.Artifact out, ObjectMapper mapper) throws IOException {
+      this.out = out;
+      this.writer = mapper.writerFor(ProyectoLeyMetadata.class)
+          .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+      this.generator = mapper.getFactory().createGenerator(out);
+      if (mapper.isEnabled(SerializationFeature.INDENT_OUTPUT)) {
+        this.generator.setPrettyPrinter(new DefaultPrettyPrinter());
+      }
+      this.generator.writeStartArray();
+    }
+
+    public static JsonWriter open(Path path) throws IOException {
+      return new JsonWriter(Artifacts.open(path), mapper);
+    }
+
+    /** Como {@link #open(Path)}, comprimiendo el JSON mientras se escribe (ver {@link Artifacts}). */
+    public static JsonWriter publish(Path path) throws IOException {
+      return new JsonWriter(Artifacts.publish(path), mapper);
+    }
+
+    /** Mismos registros en Smile (JSON binario), que se lee con {@link #readSnapshot(Path, Consumer)}. */
+    public static JsonWriter snapshot(Path path) throws IOException {
+      return new JsonWriter(Artifacts.open(path), smileMapper);
+    }
+
+    public synchronized void write(ProyectoLeyMetadata proyecto) throws IOException {
+      writer.writeValue(generator, proyecto);
+    }
+
+    public synchronized void commit() {
+      out.commit();
+    }
+
+    @Override public synchronized void close() throws IOException {
+      try {
+        generator.writeEndArray();
+        generator.close();
+      } finally {
+        out.close();
+      }
+    }
+  }
+
+  // el hash se escribe como dato derivado y se ignora al leer: el constructor lo recalcula
+  @JsonIgnoreProperties(value = "hash", allowGetters = true)
   public record ProyectoLeyMetadata (
       Periodo periodo,
       int numero,
@@ -71,8 +271,32 @@ public class ProyectosLeyMetadata {
       Optional<String> comisionActual,
 
       Optional<String> urlExpediente,
-      Set<String> iniciativasAgrupadas
+      Set<String> iniciativasAgrupadas,
+
+      // derivado de los demas campos y escrito como "hash"; 0 lo calcula el constructor, una vez
+      @JsonIgnore long contentHash
   ) {
+    public ProyectoLeyMetadata {
+      if (contentHash == 0) {
+        contentHash = ContentHash.of(periodo, numero, numeroPeriodo, titulo, estadoActual,
+            fechaPresentacion, legislatura, proponente, sumilla, grupoParlamentario, autor,
+            coAutores, adherentes, seguimientos, comisiones, comisionActual, urlExpediente,
+            iniciativasAgrupadas);
+      }
+    }
+
+    public ProyectoLeyMetadata(Periodo periodo, int numero, Optional<String> numeroPeriodo,
+        String titulo, String estadoActual, LocalDate fechaPresentacion,
+        Optional<String> legislatura, Optional<String> proponente, Optional<String> sumilla,
+        Optional<String> grupoParlamentario, Optional<Congresista> autor,
+        Set<Congresista> coAutores, Set<Congresista> adherentes, Set<Seguimiento> seguimientos,
+        Set<Comision> comisiones, Optional<String> comisionActual, Optional<String> urlExpediente,
+        Set<String> iniciativasAgrupadas) {
+      this(periodo, numero, numeroPeriodo, titulo, estadoActual, fechaPresentacion, legislatura,
+          proponente, sumilla, grupoParlamentario, autor, coAutores, adherentes, seguimientos,
+          comisiones, comisionActual, urlExpediente, iniciativasAgrupadas, 0);
+    }
+
     public static ProyectoLeyMetadata from(ProyectosLey.ProyectoLey pl) {
       return new ProyectoLeyMetadata(
           pl.periodo(),
@@ -101,6 +325,10 @@ public class ProyectosLeyMetadata {
       return periodo.periodoId(f);
     }
 
+    @JsonProperty("hash")
+    String hashTexto() {
+      return ContentHash.texto(contentHash());
+    }
 
     public Set<Congresista> firmantes() {
       final var f = new LinkedHashSet<Congresista>();
@@ -0,0 +1,172 @@
+package op.congreso.pl.internal;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import op.congreso.pl.ProyectosLeyMetadata;
+
+/**
+ * Tablas resumen para las consultas frecuentes del sitio (proyectos por congresista, comision,
+ * estado, grupo parlamentario y mes, y dias desde la presentacion hasta cada estado). Se calculan en
+ * la misma pasada de la carga, con las mismas reglas que las tablas base, y se reescriben completas
+ * al cerrar la base.
+ */
+class AggregateTables {
+
+  static final DateTimeFormatter MES = DateTimeFormatter.ofPattern("yyyy-MM");
+
+  final Conteo congresista = new Conteo("resumen_congresista", "congresista", "firmante_tipo");
+  final Conteo comision = new Conteo("resumen_comision", "ultima_comision");
+  final Conteo estado = new Conteo("resumen_estado", "ultimo_estado");
+  final Conteo grupo = new Conteo("resumen_grupo_parlamentario", "grupo_parlamentario");
+  final Conteo mes = new Conteo("resumen_mes", "mes");
+  final Map<String, Dias> tiempoEstado = new HashMap<>();
+
+  void accept(ProyectosLeyMetadata.ProyectoLeyMetadata pl) {
+    pl.autor().ifPresent(a -> congresista.add(a.nombreCompleto(), "AUTOR"));
+    for (var f : pl.coAutores()) congresista.add(f.nombreCompleto(), "COAUTOR");
+    for (var f : pl.adherentes()) congresista.add(f.nombreCompleto(), "ADHERENTE");
+    comision.add(pl.comisionActual().orElse(null));
+    estado.add(pl.estadoActual());
+    grupo.add(pl.grupoParlamentario().orElse(null));
+    mes.add(pl.fechaPresentacion().format(MES));
+
+    // primera fecha en que el proyecto llego a cada estado
+    var primeras = new HashMap<String, LocalDate>();
+    for (var s : pl.seguimientos()) {
+      s.estado().ifPresent(e -> primeras.merge(e, s.fecha(), (a, b) -> a.isBefore(b) ? a : b));
+    }
+    primeras.forEach((e, fecha) -> tiempoEstado.computeIfAbsent(e, k -> new Dias())
+        .add(ChronoUnit.DAYS.between(pl.fechaPresentacion(), fecha)));
+  }
+
+  List<Conteo> conteos() {
+    return List.of(congresista, comision, estado, grupo, mes);
+  }
+
+  /** Columnas de cada tabla resumen, en el orden en que {@link #write} las crea. */
+  Map<String, List<String>> columns() {
+    var tables = new LinkedHashMap<String, List<String>>();
+    for (var conteo : conteos()) {
+      var columns = new ArrayList<>(conteo.columns);
+      columns.add("proyectos");
+      tables.put(conteo.table, columns);
+    }
+    tables.put("resumen_tiempo_estado",
+        List.of("estado", "proyectos", "dias_promedio", "dias_minimo", "dias_maximo"));
+    return tables;
+  }
+
+  void write(Connection connection) throws SQLException {
+    for (var conteo : conteos()) conteo.write(connection);
+
+    try (var statement = connection.createStatement()) {
+      statement.executeUpdate("drop table if exists resumen_tiempo_estado");
+      statement.executeUpdate("""
+          create table resumen_tiempo_estado (
+            estado text not null,
+            proyectos integer not null,
+            dias_promedio real not null,
+            dias_minimo integer not null,
+            dias_maximo integer not null
+          )
+          """);
+    }
+    try (var ps = connection.prepareStatement(
+        "insert into resumen_tiempo_estado values (?, ?, ?, ?, ?)")) {
+      for (var e : tiempoEstado.entrySet()) {
+        var dias = e.getValue();
+        ps.setString(1, e.getKey());
+        ps.setLong(2, dias.proyectos);
+        ps.setDouble(3, (double) dias.suma / dias.proyectos);
+        ps.setLong(4, dias.minimo);
+        ps.setLong(5, dias.maximo);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+    }
+  }
+
+  /**
+   * En una base combinada, donde se copiaron las tablas resumen de cada periodo, agrupa sus filas:
+   * los conteos se suman y el promedio de dias se pondera por proyectos.
+   */
+  void combine(Connection connection) throws SQLException {
+    for (var conteo : conteos()) {
+      var columns = String.join(", ", conteo.columns);
+      regroup(connection, conteo.table,
+          "%s, sum(proyectos)".formatted(columns), columns);
+    }
+    regroup(connection, "resumen_tiempo_estado", """
+        estado, sum(proyectos), sum(dias_promedio * proyectos) / sum(proyectos),
+        min(dias_minimo), max(dias_maximo)""", "estado");
+  }
+
+  static void regroup(Connection connection, String table, String select, String groupBy)
+      throws SQLException {
+    try (var statement = connection.createStatement()) {
+      statement.executeUpdate("create temp table periodos as select * from main.%s".formatted(table));
+      statement.executeUpdate("delete from main.%s".formatted(table));
+      statement.executeUpdate("insert into main.%s select %s from temp.periodos group by %s"
+          .formatted(table, select, groupBy));
+      statement.executeUpdate("drop table temp.periodos");
+    }
+  }
+
+  /** Proyectos por combinacion de valores de {@code columns}, incluyendo {@code null}. */
+  static class Conteo {
+    final String table;
+    final List<String> columns;
+    final Map<List<String>, Long> counts = new HashMap<>();
+
+    Conteo(String table, String... columns) {
+      this.table = table;
+      this.columns = List.of(columns);
+    }
+
+    void add(String... values) {
+      counts.merge(Arrays.asList(values), 1L, Long::sum);
+    }
+
+    void write(Connection connection) throws SQLException {
+      try (var statement = connection.createStatement()) {
+        statement.executeUpdate("drop table if exists %s".formatted(table));
+        statement.executeUpdate("create table %s (%s, proyectos integer not null)".formatted(table,
+            columns.stream().map(c -> c + " text").collect(Collectors.joining(", "))));
+      }
+      var placeholders = "?, ".repeat(columns.size()) + "?";
+      try (var ps = connection.prepareStatement(
+          "insert into %s values (%s)".formatted(table, placeholders))) {
+        for (var e : counts.entrySet()) {
+          for (int i = 0; i < columns.size(); i++) ps.setString(i + 1, e.getKey().get(i));
+          ps.setLong(columns.size() + 1, e.getValue());
+          ps.addBatch();
+        }
+        ps.executeBatch();
+      }
+    }
+  }
+
+  static class Dias {
+    long proyectos;
+    long suma;
+    long minimo = Long.MAX_VALUE;
+    long maximo = Long.MIN_VALUE;
+
+    void add(long dias) {
+      proyectos++;
+      suma += dias;
+      minimo = Math.min(minimo, dias);
+      maximo = Math.max(maximo, dias);
+    }
+  }
+}
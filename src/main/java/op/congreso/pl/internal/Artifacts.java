@@ -0,0 +1,311 @@
+package op.congreso.pl.internal;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.github.luben.zstd.ZstdOutputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Archivos publicados (JSON y SQLite de cada periodo). Cada archivo se comprime en gzip y zstd
+ * mientras se escribe, en bloques comprimidos en paralelo, y al publicarse queda registrado con su
+ * tamaño y sha256 (y los de sus versiones comprimidas) en el manifiesto.
+ */
+public class Artifacts {
+
+  static final Logger LOG = LoggerFactory.getLogger(Artifacts.class);
+
+  // formatos comprimidos a generar: gz, zst (vacio para ninguno)
+  static final List<String> FORMATS = Arrays.stream(
+          System.getProperty("congreso.artifacts.formats", "gz,zst").split(","))
+      .map(String::trim)
+      .filter(f -> !f.isEmpty())
+      .collect(Collectors.toList());
+  static final int BLOCK_SIZE = Integer.getInteger("congreso.artifacts.block", 1 << 20);
+  static final int THREADS = Runtime.getRuntime().availableProcessors();
+
+  static final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  static final ExecutorService executor = newExecutor();
+
+  // entradas del manifiesto por nombre de archivo
+  static final Map<String, Map<String, Object>> manifest = new TreeMap<>();
+  static final TypeReference<Map<String, Object>> ENTRY = new TypeReference<>() {};
+  static boolean manifestLoaded = false;
+
+  /** Archivo temporal sin comprimir, para archivos que no se publican (p. ej. el snapshot). */
+  public static Artifact open(Path path) throws IOException {
+    return new Artifact(path, List.of(), false);
+  }
+
+  /** Archivo publicado: se comprime en {@code congreso.artifacts.formats} y entra al manifiesto. */
+  public static Artifact publish(Path path) throws IOException {
+    return new Artifact(path, FORMATS, true);
+  }
+
+  public static void publish(Path path, byte[] content) throws IOException {
+    try (var artifact = publish(path)) {
+      artifact.write(content);
+      artifact.commit();
+    }
+  }
+
+  /**
+   * Publica un archivo que no se pudo escribir a traves de {@link Artifact} (la base SQLite): se
+   * lee una sola vez y se comprime en paralelo.
+   */
+  public static void publishExisting(Path path) throws IOException {
+    var start = System.nanoTime();
+    try (var artifact = new Artifact(path, FORMATS, true, false)) {
+      try (var in = Files.newInputStream(path)) {
+        in.transferTo(artifact);
+      }
+      artifact.commit();
+    }
+    LOG.info("{} comprimido en {} s", path, "%.1f".formatted((System.nanoTime() - start) / 1e9));
+  }
+
+  static ExecutorService newExecutor() {
+    var count = new AtomicInteger();
+    return Executors.newFixedThreadPool(THREADS, r -> {
+      var t = new Thread(r, "compresion-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  static OutputStream compressor(String format, OutputStream out) throws IOException {
+    return switch (format) {
+      case "gz" -> new ParallelGzipOutputStream(out, executor, BLOCK_SIZE, 2 * THREADS, 6);
+      case "zst" -> new ZstdOutputStream(out).setWorkers(THREADS).setLevel(3);
+      default -> throw new IllegalArgumentException("Formato no soportado: " + format);
+    };
+  }
+
+  static MessageDigest sha256() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  static synchronized void register(String name, Map<String, Object> entry) {
+    loadManifest();
+    manifest.put(name, entry);
+  }
+
+  static void loadManifest() {
+    if (manifestLoaded) return;
+    manifestLoaded = true;
+    var path = manifestPath();
+    if (!Files.exists(path)) return;
+    try {
+      var archivos = (ObjectNode) mapper.readTree(path.toFile()).get("archivos");
+      if (archivos != null) {
+        archivos.fields().forEachRemaining(e ->
+            manifest.put(e.getKey(), mapper.convertValue(e.getValue(), ENTRY)));
+      }
+    } catch (IOException | ClassCastException e) {
+      LOG.warn("Manifiesto {} ilegible, se reescribe", path, e);
+    }
+  }
+
+  static Path manifestPath() {
+    return Path.of(System.getProperty("congreso.artifacts.manifest", "manifiesto.json"));
+  }
+
+  /**
+   * Escribe el manifiesto con los archivos publicados en esta ejecucion y los que ya tenia, de modo
+   * que {@code Import} y {@code Export} completan uno solo.
+   */
+  public static synchronized void writeManifest() {
+    loadManifest();
+    var path = manifestPath();
+    try {
+      var content = new LinkedHashMap<String, Object>();
+      content.put("archivos", manifest);
+      var tmp = path.resolveSibling(path.getFileName() + ".tmp");
+      mapper.writeValue(tmp.toFile(), content);
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      LOG.info("Manifiesto escrito en {} ({} archivos)", path, manifest.size());
+    } catch (IOException e) {
+      LOG.warn("No se pudo escribir el manifiesto {}", path, e);
+    }
+  }
+
+  /**
+   * Escribe {@code path} (salvo que ya exista, ver {@link #publishExisting(Path)}) y sus versiones
+   * comprimidas en temporales que reemplazan a los destinos solo si se llamo a {@link #commit()}.
+   */
+  public static class Artifact extends OutputStream {
+    final Path path;
+    final boolean published;
+    final List<Target> targets = new ArrayList<>();
+    final OutputStream[] outputs;
+    // sha256 y tamaño del contenido sin comprimir
+    final MessageDigest digest = sha256();
+    long size;
+    boolean committed = false;
+    boolean closed = false;
+
+    Artifact(Path path, List<String> formats, boolean published) throws IOException {
+      this(path, formats, published, true);
+    }
+
+    Artifact(Path path, List<String> formats, boolean published, boolean writeOriginal)
+        throws IOException {
+      this.path = path;
+      this.published = published;
+      try {
+        if (writeOriginal) targets.add(new Target(path, null));
+        for (var format : formats) {
+          targets.add(new Target(path.resolveSibling(path.getFileName() + "." + format), format));
+        }
+        outputs = new OutputStream[targets.size()];
+        for (int i = 0; i < outputs.length; i++) outputs[i] = targets.get(i).open();
+      } catch (IOException | RuntimeException e) {
+        for (var target : targets) target.discard();
+        throw e;
+      }
+    }
+
+    @Override public void write(int b) throws IOException {
+      digest.update((byte) b);
+      size++;
+      for (var out : outputs) out.write(b);
+    }
+
+    @Override public void write(byte[] b, int off, int len) throws IOException {
+      digest.update(b, off, len);
+      size += len;
+      for (var out : outputs) out.write(b, off, len);
+    }
+
+    @Override public void flush() throws IOException {
+      for (var out : outputs) out.flush();
+    }
+
+    public void commit() {
+      committed = true;
+    }
+
+    @Override public void close() throws IOException {
+      if (closed) return;
+      closed = true;
+      IOException error = null;
+      for (var out : outputs) {
+        try {
+          if (out != null) out.close();
+        } catch (IOException e) {
+          if (error == null) error = e;
+        }
+      }
+      if (error != null || !committed) {
+        for (var target : targets) target.discard();
+        if (error != null) throw error;
+        return;
+      }
+      for (var target : targets) target.move();
+      if (published) register();
+    }
+
+    void register() throws IOException {
+      var entry = new LinkedHashMap<String, Object>();
+      entry.put("bytes", size);
+      entry.put("sha256", HexFormat.of().formatHex(digest.digest()));
+      for (var target : targets) {
+        if (target.format == null) continue;
+        var compressed = new LinkedHashMap<String, Object>();
+        compressed.put("archivo", target.path.getFileName().toString());
+        compressed.put("bytes", target.bytes());
+        compressed.put("sha256", target.sha256());
+        entry.put(target.format, compressed);
+        Metrics.shared().written(target.path);
+      }
+      Artifacts.register(path.getFileName().toString(), entry);
+    }
+  }
+
+  static class Target {
+    final Path path;
+    final Path tmp;
+    final String format;
+    final MessageDigest digest = Artifacts.sha256();
+    final CountingOutputStream counter;
+
+    Target(Path path, String format) throws IOException {
+      this.path = path;
+      this.tmp = path.resolveSibling(path.getFileName() + ".tmp");
+      this.format = format;
+      this.counter = new CountingOutputStream(
+          new DigestOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16), digest));
+    }
+
+    OutputStream open() throws IOException {
+      return format == null ? counter : compressor(format, counter);
+    }
+
+    long bytes() {
+      return counter.count;
+    }
+
+    String sha256() {
+      return HexFormat.of().formatHex(digest.digest());
+    }
+
+    void move() throws IOException {
+      Files.move(tmp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    void discard() {
+      try {
+        counter.close();
+        Files.deleteIfExists(tmp);
+      } catch (IOException e) {
+        LOG.warn("No se pudo eliminar {}", tmp, e);
+      }
+    }
+  }
+
+  static class CountingOutputStream extends FilterOutputStream {
+    long count;
+
+    CountingOutputStream(OutputStream out) {
+      super(out);
+    }
+
+    @Override public void write(int b) throws IOException {
+      out.write(b);
+      count++;
+    }
+
+    @Override public void write(byte[] b, int off, int len) throws IOException {
+      out.write(b, off, len);
+      count += len;
+    }
+  }
+}
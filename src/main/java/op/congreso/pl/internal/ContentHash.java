@@ -0,0 +1,144 @@
+package op.congreso.pl.internal;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import op.congreso.pl.Periodo;
+import op.congreso.pl.ProyectosLeyMetadata;
+
+/**
+ * Hash de contenido de 64 bits de un proyecto de ley, calculado campo por campo sobre los valores
+ * del registro, sin serializarlo. Es estable entre ejecuciones (no depende de {@code hashCode()}) y
+ * los conjuntos se combinan sin importar su orden de iteracion: dos registros con los mismos datos
+ * tienen el mismo hash aunque sus firmantes o seguimientos se hayan leido en otro orden.
+ */
+public final class ContentHash {
+
+  static final long SEED = 0xcbf29ce484222325L;
+  static final long K = 0x9e3779b97f4a7c15L;
+
+  long h = SEED;
+
+  /**
+   * Hash de los campos de un {@link ProyectosLeyMetadata.ProyectoLeyMetadata}, que lo calcula una sola
+   * vez al construirse; recibe los campos y no el registro porque se llama desde su constructor.
+   */
+  public static long of(Periodo periodo, int numero, Optional<String> numeroPeriodo, String titulo,
+      String estadoActual, LocalDate fechaPresentacion, Optional<String> legislatura,
+      Optional<String> proponente, Optional<String> sumilla, Optional<String> grupoParlamentario,
+      Optional<ProyectosLeyMetadata.Congresista> autor,
+      Set<ProyectosLeyMetadata.Congresista> coAutores,
+      Set<ProyectosLeyMetadata.Congresista> adherentes,
+      Set<ProyectosLeyMetadata.Seguimiento> seguimientos,
+      Set<ProyectosLeyMetadata.Comision> comisiones, Optional<String> comisionActual,
+      Optional<String> urlExpediente, Set<String> iniciativasAgrupadas) {
+    return new ContentHash()
+        .add(periodo.texto())
+        .add(numero)
+        .add(numeroPeriodo)
+        .add(titulo)
+        .add(estadoActual)
+        .add(fechaPresentacion)
+        .add(legislatura)
+        .add(proponente)
+        .add(sumilla)
+        .add(grupoParlamentario)
+        .add(autor.isPresent())
+        .add(autor.orElse(null), ContentHash::congresista)
+        .unordered(coAutores, ContentHash::congresista)
+        .unordered(adherentes, ContentHash::congresista)
+        .unordered(seguimientos, (c, s) -> c
+            .add(s.fecha())
+            .add(s.detalle())
+            .add(s.estado())
+            .add(s.comision()))
+        .unordered(comisiones, (c, s) -> c.add(s.id()).add(s.nombre()))
+        .add(comisionActual)
+        .add(urlExpediente)
+        .unordered(iniciativasAgrupadas, (c, s) -> c.add(s))
+        .value();
+  }
+
+  /** Representacion del hash en JSON y SQLite: 16 digitos hexadecimales. */
+  public static String texto(long hash) {
+    return "%016x".formatted(hash);
+  }
+
+  static void congresista(ContentHash c, ProyectosLeyMetadata.Congresista congresista) {
+    if (congresista == null) return;
+    c.add(congresista.nombreCompleto())
+        .add(congresista.dni())
+        .add(congresista.sexo())
+        .add(congresista.url());
+  }
+
+  ContentHash mix(long v) {
+    // una multiplicacion por palabra de 64 bits; la mezcla fina queda para value()
+    h = Long.rotateLeft((h ^ v) * K, 29);
+    return this;
+  }
+
+  ContentHash add(String s) {
+    // el largo separa los campos: ("ab", "c") no es ("a", "bc"); null se distingue de ""
+    if (s == null) return mix(-1);
+    mix(s.length());
+    int n = s.length();
+    int i = 0;
+    // cuatro caracteres por palabra
+    for (; i + 4 <= n; i += 4) {
+      mix(s.charAt(i) | (long) s.charAt(i + 1) << 16
+          | (long) s.charAt(i + 2) << 32 | (long) s.charAt(i + 3) << 48);
+    }
+    long resto = 0;
+    for (int j = 0; i < n; i++, j += 16) resto |= (long) s.charAt(i) << j;
+    return mix(resto);
+  }
+
+  ContentHash add(Optional<String> s) {
+    return add(s.orElse(null));
+  }
+
+  ContentHash add(long v) {
+    return mix(v);
+  }
+
+  ContentHash add(boolean v) {
+    return mix(v ? 1 : 0);
+  }
+
+  ContentHash add(LocalDate fecha) {
+    return fecha == null ? mix(Long.MIN_VALUE) : mix(fecha.toEpochDay());
+  }
+
+  <T> ContentHash add(T value, BiConsumer<ContentHash, T> campos) {
+    campos.accept(this, value);
+    return this;
+  }
+
+  /**
+   * Cada elemento se hashea por separado y se suman sus hashes, ya mezclados para que la suma no
+   * cancele elementos parecidos; el resultado no depende del orden.
+   */
+  <T> ContentHash unordered(Collection<T> values, BiConsumer<ContentHash, T> campos) {
+    long suma = 0;
+    for (var v : values) {
+      var e = new ContentHash();
+      campos.accept(e, v);
+      suma += e.value();
+    }
+    return mix(values.size()).mix(suma);
+  }
+
+  long value() {
+    // finalizador de MurmurHash3 (fmix64)
+    long x = h;
+    x ^= x >>> 33;
+    x *= 0xff51afd7ed558ccdL;
+    x ^= x >>> 33;
+    x *= 0xc4ceb93fe53ef87bL;
+    x ^= x >>> 33;
+    return x;
+  }
+}
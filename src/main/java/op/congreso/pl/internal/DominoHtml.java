@@ -0,0 +1,568 @@
+package op.congreso.pl.internal;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.regex.Pattern;
+import org.jsoup.nodes.Entities;
+
+/**
+ * Lectura en una sola pasada de las paginas Domino de www2 (lista y expedientes V1), sin construir
+ * un DOM. El texto se normaliza con las mismas reglas que {@code Element.text()} de Jsoup, de modo
+ * que el resultado coincide con el de los selectores anteriores.
+ */
+final class DominoHtml {
+
+  // tags de bloque de Jsoup: agregan un espacio en Element.text()
+  static final Set<String> BLOCK_TAGS = Set.of("html", "head", "body", "frameset", "script",
+      "noscript", "style", "meta", "link", "title", "frame", "noframes", "section", "nav", "aside",
+      "hgroup", "header", "footer", "p", "h1", "h2", "h3", "h4", "h5", "h6", "ul", "ol", "pre",
+      "div", "blockquote", "hr", "address", "figure", "figcaption", "form", "fieldset", "ins", "del",
+      "dl", "dt", "dd", "li", "table", "caption", "thead", "tfoot", "tbody", "colgroup", "col", "tr",
+      "th", "td", "video", "audio", "canvas", "details", "menu", "plaintext", "template", "article",
+      "main", "svg", "math", "center", "dir", "applet", "marquee", "listing");
+
+  static final Pattern META_CHARSET =
+      Pattern.compile("<meta[^>]+charset=[\"']?([\\w.:-]+)", Pattern.CASE_INSENSITIVE);
+
+  static final String SEGUIMIENTO = "Seguimiento:";
+  static final String ENVIO_COMISION = "Envío a Comisión:";
+
+  private DominoHtml() {}
+
+  /**
+   * Decodifica el cuerpo con el charset de la cabecera o, si no viene, con el declarado en la
+   * pagina (UTF-8 por defecto), como hace Jsoup.
+   */
+  static String decode(byte[] body, Optional<String> charset) {
+    var nombre = charset.or(() -> {
+      var head = new String(body, 0, Math.min(body.length, 4096), StandardCharsets.ISO_8859_1);
+      var m = META_CHARSET.matcher(head);
+      return m.find() ? Optional.of(m.group(1)) : Optional.empty();
+    });
+    try {
+      return new String(body, nombre.map(Charset::forName).orElse(StandardCharsets.UTF_8));
+    } catch (IllegalArgumentException e) {
+      return new String(body, StandardCharsets.UTF_8);
+    }
+  }
+
+  /** Filas {@code tr[valign=top]} de la primera {@code table[cellpadding=2]}. */
+  static List<List<Celda>> lista(String html) {
+    var handler = new ListaHandler();
+    scan(html, handler);
+    if (!handler.encontrada) throw new IllegalStateException("table not found");
+    handler.cerrarFila();
+    return handler.filas;
+  }
+
+  static Expediente expediente(String html) {
+    var handler = new ExpedienteHandler();
+    scan(html, handler);
+    handler.cerrarFilas(0);
+    return new Expediente(handler.inputs, Optional.ofNullable(handler.seguimiento),
+        handler.envioComision);
+  }
+
+  /**
+   * Celda de la lista: texto de sus {@code font} y de sus {@code a} (como {@code Elements.text()})
+   * y el {@code href} del ultimo enlace.
+   */
+  record Celda(String fonts, String links, String href) {}
+
+  record Expediente(Map<String, String> inputs, Optional<String> seguimiento,
+                    boolean envioComision) {
+    /** Valor del primer {@code input[name=...]}; el nombre no distingue mayusculas. */
+    Optional<String> input(String name) {
+      return Optional.ofNullable(inputs.get(name.toLowerCase(Locale.ROOT)));
+    }
+  }
+
+  interface Handler {
+    void start(String tag, Attributes attributes);
+
+    void end(String tag);
+
+    void text(String text);
+  }
+
+  /** Atributos del tag actual, reutilizados entre tags. */
+  static final class Attributes {
+    final List<String> names = new ArrayList<>();
+    final List<String> values = new ArrayList<>();
+
+    void clear() {
+      names.clear();
+      values.clear();
+    }
+
+    void add(String name, String value) {
+      if (names.contains(name)) return;
+      names.add(name);
+      values.add(value);
+    }
+
+    /** Valor del atributo o {@code null}; {@code name} en minusculas. */
+    String get(String name) {
+      var i = names.indexOf(name);
+      return i < 0 ? null : values.get(i);
+    }
+
+    boolean is(String name, String value) {
+      var v = get(name);
+      return v != null && v.trim().equalsIgnoreCase(value);
+    }
+  }
+
+  /**
+   * Tokenizador minimo: tags, atributos, texto y entidades; omite comentarios, script y style. Un
+   * tag sin cerrar al final del documento (respuesta truncada) se descarta, como en Jsoup.
+   */
+  static void scan(String html, Handler handler) {
+    var attributes = new Attributes();
+    var n = html.length();
+    var i = 0;
+    while (i < n) {
+      var lt = html.indexOf('<', i);
+      if (lt < 0) {
+        text(html, i, n, handler);
+        break;
+      }
+      if (lt > i) text(html, i, lt, handler);
+      var c = lt + 1 < n ? html.charAt(lt + 1) : 0;
+      if (html.startsWith("<!--", lt)) {
+        var end = html.indexOf("-->", lt + 4);
+        i = end < 0 ? n : end + 3;
+      } else if (c == '!' || c == '?') {
+        i = skip(html, lt);
+      } else if (c == '/' && lt + 2 == n) {
+        text(html, lt, n, handler);
+        break;
+      } else if (c == '/') {
+        var end = nameEnd(html, lt + 2);
+        if (end == lt + 2) {
+          i = skip(html, lt);
+        } else {
+          i = skip(html, end);
+          if (html.charAt(i - 1) != '>') return;
+          handler.end(html.substring(lt + 2, end).toLowerCase(Locale.ROOT));
+        }
+      } else if (isLetter(c)) {
+        var end = nameEnd(html, lt + 1);
+        var tag = html.substring(lt + 1, end).toLowerCase(Locale.ROOT);
+        attributes.clear();
+        i = attributes(html, end, attributes);
+        if (i < 0) return;
+        handler.start(tag, attributes);
+        if (tag.equals("script") || tag.equals("style")) {
+          var close = indexOfIgnoreCase(html, "</" + tag, i);
+          if (close < 0) return;
+          handler.end(tag);
+          i = skip(html, close);
+        }
+      } else {
+        text(html, lt, lt + 1, handler);
+        i = lt + 1;
+      }
+    }
+  }
+
+  static void text(String html, int from, int to, Handler handler) {
+    var text = html.substring(from, to);
+    handler.text(text.indexOf('&') < 0 ? text : unescape(text, false));
+  }
+
+  /** Lee los atributos hasta el {@code >}; -1 si el documento termina antes (salvo tras un '='). */
+  static int attributes(String html, int i, Attributes attributes) {
+    var n = html.length();
+    while (i < n) {
+      var c = html.charAt(i);
+      if (c == '>') return i + 1;
+      if (Character.isWhitespace(c) || c == '/') {
+        i++;
+        continue;
+      }
+      var start = i;
+      while (i < n && !isAttributeNameEnd(html.charAt(i))) i++;
+      var name = html.substring(start, i).toLowerCase(Locale.ROOT);
+      while (i < n && Character.isWhitespace(html.charAt(i))) i++;
+      if (i >= n || html.charAt(i) != '=') {
+        attributes.add(name, "");
+        continue;
+      }
+      i++;
+      while (i < n && Character.isWhitespace(html.charAt(i))) i++;
+      if (i >= n) {
+        // unico caso en que Jsoup emite un tag truncado: justo tras el '='
+        attributes.add(name, "");
+        return n;
+      }
+      String value;
+      var q = html.charAt(i);
+      if (q == '"' || q == '\'') {
+        var close = html.indexOf(q, i + 1);
+        if (close < 0) close = n;
+        value = html.substring(i + 1, close);
+        i = close + 1;
+      } else {
+        var vs = i;
+        while (i < n && !Character.isWhitespace(html.charAt(i)) && html.charAt(i) != '>') i++;
+        value = html.substring(vs, i);
+      }
+      attributes.add(name, value.indexOf('&') < 0 ? value : unescape(value, true));
+    }
+    return -1;
+  }
+
+  // windows-1252 para referencias numericas 0x80-0x9F, como en el tokenizador de Jsoup
+  static final int[] WIN1252 = {0x20AC, 0x0081, 0x201A, 0x0192, 0x201E, 0x2026, 0x2020, 0x2021,
+      0x02C6, 0x2030, 0x0160, 0x2039, 0x0152, 0x008D, 0x017D, 0x008F, 0x0090, 0x2018, 0x2019,
+      0x201C, 0x201D, 0x2022, 0x2013, 0x2014, 0x02DC, 0x2122, 0x0161, 0x203A, 0x0153, 0x009D,
+      0x017E, 0x0178};
+
+  /**
+   * Decodifica referencias de caracteres con las reglas de {@code Parser.unescapeEntities}, sin
+   * instanciar un tokenizador por cada texto.
+   */
+  static String unescape(String s, boolean inAttribute) {
+    var sb = new StringBuilder(s.length());
+    var n = s.length();
+    var i = 0;
+    while (i < n) {
+      var c = s.charAt(i);
+      if (c != '&' || i + 1 >= n) {
+        sb.append(c);
+        i++;
+        continue;
+      }
+      var next = s.charAt(i + 1);
+      if (next == '\t' || next == '\n' || next == '\r' || next == '\f' || next == ' '
+          || next == '<' || next == '&') {
+        sb.append(c);
+        i++;
+        continue;
+      }
+      if (next == '#') {
+        var j = i + 2;
+        var hex = j < n && (s.charAt(j) == 'x' || s.charAt(j) == 'X');
+        if (hex) j++;
+        var start = j;
+        while (j < n && (hex ? Character.digit(s.charAt(j), 16) >= 0 && s.charAt(j) < 128
+            : s.charAt(j) >= '0' && s.charAt(j) <= '9')) j++;
+        if (j == start) {
+          sb.append(c);
+          i++;
+          continue;
+        }
+        var value = -1;
+        try {
+          value = Integer.parseInt(s, start, j, hex ? 16 : 10);
+        } catch (NumberFormatException ignored) {
+          // fuera de rango: caracter de reemplazo
+        }
+        if (value == -1 || (value >= 0xD800 && value <= 0xDFFF) || value > 0x10FFFF) {
+          value = 0xFFFD;
+        } else if (value >= 0x80 && value < 0x80 + WIN1252.length) {
+          value = WIN1252[value - 0x80];
+        }
+        sb.appendCodePoint(value);
+        i = j < n && s.charAt(j) == ';' ? j + 1 : j;
+        continue;
+      }
+      var j = i + 1;
+      while (j < n && ((s.charAt(j) >= 'A' && s.charAt(j) <= 'Z')
+          || (s.charAt(j) >= 'a' && s.charAt(j) <= 'z') || Character.isLetter(s.charAt(j)))) j++;
+      while (j < n && s.charAt(j) >= '0' && s.charAt(j) <= '9') j++;
+      var name = s.substring(i + 1, j);
+      var semicolon = j < n && s.charAt(j) == ';';
+      var found = Entities.isBaseNamedEntity(name) || (Entities.isNamedEntity(name) && semicolon);
+      if (found && inAttribute && j < n && (Character.isLetterOrDigit(s.charAt(j))
+          || s.charAt(j) == '=' || s.charAt(j) == '-' || s.charAt(j) == '_')) {
+        found = false;
+      }
+      if (!found) {
+        sb.append(c);
+        i++;
+        continue;
+      }
+      sb.append(Entities.getByName(name));
+      i = semicolon ? j + 1 : j;
+    }
+    return sb.toString();
+  }
+
+  static boolean isAttributeNameEnd(char c) {
+    return Character.isWhitespace(c) || c == '=' || c == '>' || c == '/';
+  }
+
+  static boolean isLetter(char c) {
+    return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+  }
+
+  static int nameEnd(String html, int i) {
+    var n = html.length();
+    while (i < n) {
+      var c = html.charAt(i);
+      if (Character.isWhitespace(c) || c == '/' || c == '>') break;
+      i++;
+    }
+    return i;
+  }
+
+  static int skip(String html, int i) {
+    var gt = html.indexOf('>', i);
+    return gt < 0 ? html.length() : gt + 1;
+  }
+
+  static int indexOfIgnoreCase(String html, String s, int from) {
+    for (int i = from; i <= html.length() - s.length(); i++) {
+      if (html.regionMatches(true, i, s, 0, s.length())) return i;
+    }
+    return -1;
+  }
+
+  /** Acumula texto con las reglas de espacios de {@code Element.text()} de Jsoup. */
+  static final class Texto {
+    final StringBuilder sb = new StringBuilder();
+    // un bloque recien cerrado seguido de texto agrega un espacio
+    boolean finBloque = false;
+
+    void start(String tag) {
+      finBloque = false;
+      if (sb.length() > 0 && (BLOCK_TAGS.contains(tag) || tag.equals("br")) && !lastIsSpace()) {
+        sb.append(' ');
+      }
+    }
+
+    void end(String tag) {
+      finBloque = BLOCK_TAGS.contains(tag);
+    }
+
+    void append(String text) {
+      if (finBloque) {
+        finBloque = false;
+        if (!lastIsSpace()) sb.append(' ');
+      }
+      var stripLeading = lastIsSpace();
+      var lastWasWhite = false;
+      var reachedNonWhite = false;
+      for (int i = 0; i < text.length(); i++) {
+        var c = text.charAt(i);
+        if (c == ' ' || c == '\t' || c == '\n' || c == '\f' || c == '\r' || c == 160) {
+          if ((stripLeading && !reachedNonWhite) || lastWasWhite) continue;
+          sb.append(' ');
+          lastWasWhite = true;
+        } else if (c != 8203 && c != 173) {
+          sb.append(c);
+          lastWasWhite = false;
+          reachedNonWhite = true;
+        }
+      }
+    }
+
+    boolean lastIsSpace() {
+      return sb.length() != 0 && sb.charAt(sb.length() - 1) == ' ';
+    }
+
+    /** El texto (sin espacios iniciales) ya tiene {@code length} caracteres y no empieza con prefix. */
+    boolean descartable(String prefix) {
+      var i = 0;
+      while (i < sb.length() && sb.charAt(i) <= ' ') i++;
+      return sb.length() - i >= prefix.length() && !sb.substring(i, i + prefix.length()).equals(prefix);
+    }
+
+    String text() {
+      return sb.toString().trim();
+    }
+  }
+
+  static final class ListaHandler implements Handler {
+    final List<List<Celda>> filas = new ArrayList<>();
+    boolean encontrada = false;
+    boolean enTabla = false;
+    int anidadas = 0;
+    // fila y celda abiertas; fila == null fuera de un tr, filaValida si es tr[valign=top]
+    List<CeldaAbierta> fila;
+    boolean filaValida;
+    CeldaAbierta celda;
+
+    @Override public void start(String tag, Attributes attributes) {
+      if (tag.equals("table")) {
+        if (enTabla) {
+          anidadas++;
+        } else if (!encontrada && attributes.is("cellpadding", "2")) {
+          encontrada = enTabla = true;
+          return;
+        }
+      }
+      if (!enTabla) return;
+      if (anidadas == 0 && tag.equals("tr")) {
+        cerrarFila();
+        fila = new ArrayList<>();
+        filaValida = attributes.is("valign", "top");
+        return;
+      }
+      if (anidadas == 0 && fila != null && (tag.equals("td") || tag.equals("th"))) {
+        cerrarCelda();
+        if (tag.equals("td")) {
+          celda = new CeldaAbierta();
+          fila.add(celda);
+        }
+        return;
+      }
+      if (celda == null) return;
+      celda.abiertos.forEach(t -> t.start(tag));
+      if (tag.equals("font")) celda.abrir(tag, celda.fonts);
+      if (tag.equals("a")) {
+        celda.abrir(tag, celda.links);
+        celda.href = Optional.ofNullable(attributes.get("href")).orElse("");
+      }
+    }
+
+    @Override public void end(String tag) {
+      if (!enTabla) return;
+      if (tag.equals("table")) {
+        if (anidadas > 0) {
+          anidadas--;
+        } else {
+          cerrarFila();
+          enTabla = false;
+          return;
+        }
+      }
+      if (anidadas == 0 && tag.equals("tr")) {
+        cerrarFila();
+        return;
+      }
+      if (anidadas == 0 && (tag.equals("td") || tag.equals("th"))) {
+        cerrarCelda();
+        return;
+      }
+      if (celda == null) return;
+      if (tag.equals("font") || tag.equals("a")) celda.cerrar(tag);
+      celda.abiertos.forEach(t -> t.end(tag));
+    }
+
+    @Override public void text(String text) {
+      if (celda != null) celda.abiertos.forEach(t -> t.append(text));
+    }
+
+    void cerrarCelda() {
+      celda = null;
+    }
+
+    void cerrarFila() {
+      cerrarCelda();
+      if (fila != null && filaValida) {
+        var celdas = new ArrayList<Celda>(fila.size());
+        for (var c : fila) celdas.add(c.celda());
+        filas.add(celdas);
+      }
+      fila = null;
+    }
+  }
+
+  static final class CeldaAbierta {
+    final List<Texto> fonts = new ArrayList<>();
+    final List<Texto> links = new ArrayList<>();
+    // elementos font/a abiertos, con su tag
+    final ArrayDeque<Map.Entry<String, Texto>> pila = new ArrayDeque<>();
+    final List<Texto> abiertos = new ArrayList<>();
+    String href = null;
+
+    void abrir(String tag, List<Texto> destino) {
+      var texto = new Texto();
+      destino.add(texto);
+      pila.push(Map.entry(tag, texto));
+      abiertos.add(texto);
+    }
+
+    void cerrar(String tag) {
+      if (pila.stream().noneMatch(e -> e.getKey().equals(tag))) return;
+      while (!pila.isEmpty()) {
+        var e = pila.pop();
+        abiertos.remove(e.getValue());
+        if (e.getKey().equals(tag)) break;
+      }
+    }
+
+    Celda celda() {
+      return new Celda(join(fonts), join(links), href);
+    }
+
+    static String join(List<Texto> textos) {
+      var sb = new StringBuilder();
+      for (var t : textos) {
+        if (sb.length() != 0) sb.append(' ');
+        sb.append(t.text());
+      }
+      return sb.toString();
+    }
+  }
+
+  static final class ExpedienteHandler implements Handler {
+    final Map<String, String> inputs = new HashMap<>();
+    // tr abiertos candidatos a "Seguimiento:", con su profundidad de tabla
+    final List<Fila> filas = new ArrayList<>();
+    int tablas = 0;
+    int orden = 0;
+    String seguimiento = null;
+    int ordenSeguimiento = Integer.MAX_VALUE;
+    boolean envioComision = false;
+
+    record Fila(int tabla, int orden, Texto texto) {}
+
+    @Override public void start(String tag, Attributes attributes) {
+      if (tag.equals("input")) {
+        var name = attributes.get("name");
+        if (name != null) {
+          inputs.putIfAbsent(name.trim().toLowerCase(Locale.ROOT),
+              Optional.ofNullable(attributes.get("value")).orElse(""));
+        }
+      }
+      if (tag.equals("table")) tablas++;
+      if (tag.equals("tr")) cerrarFilas(tablas);
+      for (var f : filas) f.texto().start(tag);
+      if (tag.equals("tr")) filas.add(new Fila(tablas, orden++, new Texto()));
+    }
+
+    @Override public void end(String tag) {
+      if (tag.equals("table")) {
+        cerrarFilas(tablas);
+        tablas = Math.max(0, tablas - 1);
+      }
+      if (tag.equals("tr")) cerrarFilas(tablas);
+      for (var f : filas) f.texto().end(tag);
+    }
+
+    @Override public void text(String text) {
+      if (!envioComision && text.contains(ENVIO_COMISION)) envioComision = true;
+      for (var it = filas.iterator(); it.hasNext(); ) {
+        var texto = it.next().texto();
+        texto.append(text);
+        if (texto.descartable(SEGUIMIENTO)) it.remove();
+      }
+    }
+
+    /** Cierra los tr abiertos en la tabla {@code tabla} o en tablas anidadas dentro de ella. */
+    void cerrarFilas(int tabla) {
+      for (var it = filas.iterator(); it.hasNext(); ) {
+        var f = it.next();
+        if (f.tabla() < tabla) continue;
+        it.remove();
+        var text = f.texto().text();
+        if (f.orden() < ordenSeguimiento && text.startsWith(SEGUIMIENTO)) {
+          seguimiento = text;
+          ordenSeguimiento = f.orden();
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,229 @@
+package op.congreso.pl.internal;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class FetchExecutor {
+
+  static final Logger LOG = LoggerFactory.getLogger(FetchExecutor.class);
+
+  static final int MAX_IN_FLIGHT = Integer.getInteger("congreso.fetch.maxInFlight", 32);
+
+  static final FetchExecutor shared = new FetchExecutor(MAX_IN_FLIGHT);
+
+  final int maxInFlight;
+  final ExecutorService executor = newExecutor();
+  final Map<String, Budget> hosts = new ConcurrentHashMap<>();
+
+  public FetchExecutor(int maxInFlight) {
+    this.maxInFlight = maxInFlight;
+  }
+
+  public static FetchExecutor shared() {
+    return shared;
+  }
+
+  public static String host(String url) {
+    return URI.create(url).getHost();
+  }
+
+  /**
+   * Consultas simultaneas permitidas para {@code host}: {@code congreso.fetch.maxInFlight.<host>} o,
+   * si no esta definida, {@code congreso.fetch.maxInFlight}.
+   */
+  public int budget(String host) {
+    return Integer.getInteger("congreso.fetch.maxInFlight." + host, maxInFlight);
+  }
+
+  Budget permits(String host) {
+    return hosts.computeIfAbsent(host, h -> new Budget(h, budget(h)));
+  }
+
+  /**
+   * Envia {@code task} cuando hay un permiso libre para {@code host}. El permiso se adquiere en el
+   * hilo que envia, de modo que los hilos bloqueados en I/O nunca superan el limite por host y quien
+   * produce las tareas recibe back-pressure.
+   */
+  public <R> Future<R> submit(String host, Callable<R> task) throws InterruptedException {
+    return submit(host, 0, task);
+  }
+
+  /**
+   * Como {@link #submit(String, Callable)}; con el host saturado los permisos se conceden primero a
+   * la mayor {@code prioridad} y, entre iguales, por orden de llegada.
+   */
+  public <R> Future<R> submit(String host, int prioridad, Callable<R> task)
+      throws InterruptedException {
+    var permits = permits(host);
+    permits.acquire(prioridad);
+    var liberado = new AtomicBoolean();
+    Runnable liberar = () -> {
+      if (liberado.compareAndSet(false, true)) permits.release();
+    };
+    var future = new FutureTask<R>(() -> {
+      try {
+        return task.call();
+      } finally {
+        liberar.run();
+      }
+    }) {
+      // una tarea cancelada antes de empezar nunca se ejecuta: el permiso se libera aqui
+      @Override protected void done() {
+        if (isCancelled()) liberar.run();
+      }
+    };
+    try {
+      executor.execute(future);
+      return future;
+    } catch (RuntimeException e) {
+      liberar.run();
+      throw e;
+    }
+  }
+
+  /**
+   * Como {@link #submit(String, Callable)}, para tareas asincronas: el permiso se libera cuando
+   * termina el {@code CompletableFuture} devuelto por {@code task}, no cuando retorna.
+   */
+  public <R> CompletableFuture<R> submitAsync(String host, Supplier<CompletableFuture<R>> task)
+      throws InterruptedException {
+    return submitAsync(host, 0, task);
+  }
+
+  public <R> CompletableFuture<R> submitAsync(String host, int prioridad,
+      Supplier<CompletableFuture<R>> task) throws InterruptedException {
+    var permits = permits(host);
+    permits.acquire(prioridad);
+    try {
+      return task.get().whenComplete((r, e) -> permits.release());
+    } catch (RuntimeException e) {
+      permits.release();
+      throw e;
+    }
+  }
+
+  public <T, R> Set<R> fetchAll(String host, Collection<T> items,
+      Function<T, CompletableFuture<R>> fetch) {
+    var start = System.nanoTime();
+    var futures = new ArrayList<Future<R>>(items.size());
+    try {
+      for (var item : items) futures.add(submitAsync(host, () -> fetch.apply(item)));
+      var results = new LinkedHashSet<R>(futures.size());
+      for (var future : futures) results.add(future.get());
+      logRate(host, futures.size(), start);
+      return results;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      futures.forEach(f -> f.cancel(true));
+      throw new RuntimeException("Interrupted", e);
+    } catch (ExecutionException e) {
+      futures.forEach(f -> f.cancel(true));
+      throw new RuntimeException("Error", e.getCause());
+    }
+  }
+
+  void logRate(String host, int requests, long start) {
+    var seconds = (System.nanoTime() - start) / 1e9;
+    LOG.info("{} requests to {} in {} s ({} req/s, max in flight {})",
+        requests, host, "%.1f".formatted(seconds),
+        "%.1f".formatted(requests / Math.max(seconds, 1e-3)), budget(host));
+  }
+
+  /**
+   * Semaforo por host que, cuando no alcanzan los permisos, atiende primero a la espera de mayor
+   * prioridad. Asi varios periodos comparten el limite del host sin que el periodo activo quede
+   * detras de la cola de los historicos.
+   */
+  static class Budget {
+    final String host;
+    final int permits;
+    final ReentrantLock lock = new ReentrantLock();
+    final Condition libre = lock.newCondition();
+    final PriorityQueue<Espera> esperas = new PriorityQueue<>(
+        Comparator.comparingInt((Espera e) -> -e.prioridad()).thenComparingLong(Espera::orden));
+    int enUso;
+    long llegadas;
+
+    Budget(String host, int permits) {
+      this.host = host;
+      this.permits = permits;
+    }
+
+    void acquire(int prioridad) throws InterruptedException {
+      var start = System.nanoTime();
+      lock.lock();
+      try {
+        if (enUso < permits && esperas.isEmpty()) {
+          enUso++;
+          return;
+        }
+        var espera = new Espera(prioridad, llegadas++);
+        esperas.add(espera);
+        try {
+          while (enUso >= permits || esperas.peek() != espera) libre.await();
+        } catch (InterruptedException e) {
+          esperas.remove(espera);
+          libre.signalAll();
+          throw e;
+        }
+        esperas.remove();
+        enUso++;
+        // puede quedar otro permiso libre para la siguiente espera
+        if (enUso < permits && !esperas.isEmpty()) libre.signalAll();
+      } finally {
+        lock.unlock();
+      }
+      Metrics.shared().observe("congreso_fetch_wait_seconds", System.nanoTime() - start,
+          "host", host);
+    }
+
+    void release() {
+      lock.lock();
+      try {
+        enUso--;
+        if (!esperas.isEmpty()) libre.signalAll();
+      } finally {
+        lock.unlock();
+      }
+    }
+
+    record Espera(int prioridad, long orden) {}
+  }
+
+  static ExecutorService newExecutor() {
+    try {
+      // virtual threads when running on JDK 21+
+      return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor")
+          .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      var count = new AtomicInteger();
+      return Executors.newCachedThreadPool(r -> {
+        var t = new Thread(r, "fetch-" + count.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      });
+    }
+  }
+}
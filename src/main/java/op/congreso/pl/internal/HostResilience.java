@@ -0,0 +1,145 @@
+package op.congreso.pl.internal;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.retry.Retry;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reintentos y circuit breaker compartidos por host. Las esperas entre intentos (backoff exponencial
+ * con jitter) se programan en un scheduler, sin ocupar un hilo de consulta. Con el circuito abierto
+ * las consultas a ese host se pausan hasta que vuelva a aceptar llamadas, sin consumir intentos.
+ */
+public class HostResilience {
+
+  static final Logger LOG = LoggerFactory.getLogger(HostResilience.class);
+
+  static final int MAX_ATTEMPTS = Integer.getInteger("congreso.retry.maxAttempts", 4);
+  static final Duration INITIAL_WAIT =
+      Duration.parse(System.getProperty("congreso.retry.initialWait", "PT2S"));
+  static final Duration OPEN_WAIT =
+      Duration.parse(System.getProperty("congreso.breaker.openWait", "PT30S"));
+  // tiempo maximo que una consulta espera a que el circuito se cierre antes de fallar
+  static final Duration MAX_PAUSE =
+      Duration.parse(System.getProperty("congreso.breaker.maxPause", "PT10M"));
+
+  static final RetryRegistry retries = RetryRegistry.of(RetryConfig.custom()
+      .maxAttempts(MAX_ATTEMPTS)
+      .intervalFunction(IntervalFunction.ofExponentialRandomBackoff(INITIAL_WAIT, 2.0, 0.5))
+      .retryExceptions(RuntimeException.class)
+      .ignoreExceptions(CallNotPermittedException.class)
+      .build());
+
+  static final CircuitBreakerRegistry breakers = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+      .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.COUNT_BASED)
+      .slidingWindowSize(20)
+      .minimumNumberOfCalls(10)
+      .failureRateThreshold(50)
+      .waitDurationInOpenState(OPEN_WAIT)
+      .permittedNumberOfCallsInHalfOpenState(4)
+      .automaticTransitionFromOpenToHalfOpenEnabled(true)
+      .build());
+
+  static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+    var t = new Thread(r, "retry-scheduler");
+    t.setDaemon(true);
+    return t;
+  });
+
+  static final Map<String, HostResilience> hosts = new ConcurrentHashMap<>();
+
+  final String host;
+  final Retry retry;
+  final CircuitBreaker breaker;
+
+  HostResilience(String host) {
+    this.host = host;
+    this.retry = retries.retry(host);
+    this.breaker = breakers.circuitBreaker(host);
+    var metrics = Metrics.shared();
+    retry.getEventPublisher()
+        .onRetry(e -> {
+          LOG.warn("Reintento {} a {} en {} ms: {}", e.getNumberOfRetryAttempts(), host,
+              e.getWaitInterval().toMillis(), e.getLastThrowable().toString());
+          metrics.increment("congreso_retries_total", "host", host);
+        })
+        .onError(e -> metrics.increment("congreso_metadata_errors_total", "host", host));
+    breaker.getEventPublisher()
+        .onStateTransition(e -> {
+          LOG.warn("Circuit breaker de {}: {}", host, e.getStateTransition());
+          metrics.increment("congreso_circuit_breaker_transitions_total", "host", host,
+              "desde", e.getStateTransition().getFromState().name(),
+              "hacia", e.getStateTransition().getToState().name());
+        })
+        .onCallNotPermitted(e -> metrics.increment("congreso_circuit_breaker_rejected_total",
+            "host", host));
+  }
+
+  public static HostResilience of(String host) {
+    return hosts.computeIfAbsent(host, HostResilience::new);
+  }
+
+  /**
+   * Ejecuta {@code attempt} en los hilos de {@link FetchExecutor}, reintentando segun la politica
+   * del host.
+   */
+  public <R> CompletableFuture<R> execute(Callable<R> attempt) {
+    return executeAsync(() -> CompletableFuture.supplyAsync(() -> {
+      try {
+        return attempt.call();
+      } catch (RuntimeException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new CompletionException(e);
+      }
+    }, FetchExecutor.shared().executor));
+  }
+
+  /**
+   * Como {@link #execute(Callable)}, para intentos que ya son asincronos: ningun hilo queda
+   * esperando la respuesta, ni entre reintentos.
+   */
+  public <R> CompletableFuture<R> executeAsync(Supplier<CompletionStage<R>> attempt) {
+    var result = new CompletableFuture<R>();
+    run(attempt, result, System.nanoTime() + MAX_PAUSE.toNanos());
+    return result;
+  }
+
+  <R> void run(Supplier<CompletionStage<R>> attempt, CompletableFuture<R> result, long deadline) {
+    Retry.decorateCompletionStage(retry, scheduler,
+            CircuitBreaker.decorateCompletionStage(breaker, attempt))
+        .get()
+        .whenComplete((r, e) -> {
+          if (e == null) {
+            result.complete(r);
+          } else if (cause(e) instanceof CallNotPermittedException && System.nanoTime() < deadline) {
+            // circuito abierto: se reintenta cuando el breaker pase a half-open
+            scheduler.schedule(() -> run(attempt, result, deadline),
+                OPEN_WAIT.toMillis(), TimeUnit.MILLISECONDS);
+          } else {
+            result.completeExceptionally(cause(e));
+          }
+        });
+  }
+
+  static Throwable cause(Throwable e) {
+    return e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+  }
+}
@@ -0,0 +1,434 @@
+package op.congreso.pl.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cache en disco de respuestas HTTP (LRU, acotada por {@code congreso.cache.maxBytes}). Las
+ * entradas frescas se sirven sin ir a la red; el resto se revalida con ETag/Last-Modified. Todas
+ * las consultas, de cualquier instancia, pasan por un unico cliente HTTP/2 con gzip
+ * ({@link #httpClient}); {@link #get} y {@link #post} bloquean el hilo que llama hasta tener la
+ * respuesta. Conectar y cada consulta tienen un tiempo maximo
+ * ({@code congreso.http.connectTimeout}, {@code congreso.http.timeout}); al vencer la consulta
+ * falla con {@link java.net.http.HttpTimeoutException} y libera su permiso.
+ */
+public class HttpCache {
+
+  static final Logger LOG = LoggerFactory.getLogger(HttpCache.class);
+
+  static final String USER_AGENT = "Mozilla/5.0 Firefox/26.0";
+  static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+  static final Pattern CHARSET = Pattern.compile("charset=([^;\\s]+)", Pattern.CASE_INSENSITIVE);
+
+  // hilos para completar respuestas (descomprimir, escribir en la cache); la espera de la red no
+  // ocupa ninguno, asi que bastan unos pocos para miles de consultas en curso
+  static final int THREADS = Integer.getInteger("congreso.http.threads",
+      Math.max(2, Runtime.getRuntime().availableProcessors()));
+
+  static final Duration CONNECT_TIMEOUT =
+      Duration.parse(System.getProperty("congreso.http.connectTimeout", "PT10S"));
+  static final Duration TIMEOUT =
+      Duration.parse(System.getProperty("congreso.http.timeout", "PT60S"));
+
+  // uno por proceso: las instancias de prueba o con otro directorio comparten conexiones e hilos
+  static final HttpClient httpClient = HttpClient.newBuilder()
+      .version(HttpClient.Version.HTTP_2)
+      .followRedirects(HttpClient.Redirect.NORMAL)
+      .connectTimeout(CONNECT_TIMEOUT)
+      .executor(newExecutor())
+      .build();
+
+  static final HttpCache shared = new HttpCache(
+      Path.of(System.getProperty("congreso.cache.dir", ".cache/http")),
+      Long.getLong("congreso.cache.maxBytes", 512L * 1024 * 1024),
+      Duration.parse(System.getProperty("congreso.cache.ttl", "PT0S")));
+
+  static final ObjectMapper mapper = new ObjectMapper();
+
+  final Path dir;
+  final long maxBytes;
+  final Duration ttl;
+  // tamaño por clave, en orden de acceso (LRU)
+  final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+  long totalBytes = 0;
+
+  public HttpCache(Path dir, long maxBytes, Duration ttl) {
+    this.dir = dir;
+    this.maxBytes = maxBytes;
+    this.ttl = ttl;
+    if (enabled()) loadIndex();
+  }
+
+  public static HttpCache shared() {
+    return shared;
+  }
+
+  public Response get(String url) throws IOException, InterruptedException {
+    return join(getAsync(url));
+  }
+
+  public Response post(String url, String json) throws IOException, InterruptedException {
+    return join(postAsync(url, json));
+  }
+
+  public CompletableFuture<Response> getAsync(String url) {
+    return sendAsync("GET", url, request(url).GET(), "");
+  }
+
+  public CompletableFuture<Response> postAsync(String url, String json) {
+    return sendAsync("POST", url, request(url)
+            .POST(HttpRequest.BodyPublishers.ofString(json))
+            .header("Content-Type", "application/json"),
+        json);
+  }
+
+  static Response join(CompletableFuture<Response> response)
+      throws IOException, InterruptedException {
+    try {
+      return response.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException io) throw io;
+      if (e.getCause() instanceof RuntimeException re) throw re;
+      throw new IOException(e.getCause());
+    }
+  }
+
+  /** GET que falla, como {@code Jsoup.connect(url).get()}, si la respuesta no es 200. */
+  public Response getOk(String url) throws IOException, InterruptedException {
+    var response = get(url);
+    if (response.statusCode() != 200) {
+      throw new IOException("HTTP error fetching URL. Status=%d, URL=[%s]"
+          .formatted(response.statusCode(), url));
+    }
+    return response;
+  }
+
+  /** GET de una pagina HTML, equivalente a {@code Jsoup.connect(url).get()}. */
+  public Document document(String url) throws IOException, InterruptedException {
+    return getOk(url).document(url);
+  }
+
+  HttpRequest.Builder request(String url) {
+    return HttpRequest.newBuilder()
+        .uri(URI.create(url.replace(" ", "%20")))
+        .timeout(TIMEOUT)
+        .header("User-Agent", USER_AGENT)
+        .header("Accept-Encoding", "gzip");
+  }
+
+  CompletableFuture<Response> sendAsync(String method, String url, HttpRequest.Builder builder,
+      String body) {
+    var key = key(method, url, body);
+    var host = FetchExecutor.host(url.replace(" ", "%20"));
+    var cached = enabled() ? read(key) : Optional.<Entry>empty();
+    // sin las cabeceras condicionales, por si la entrada desaparece antes de usarla
+    var sinCache = builder.copy();
+    if (cached.isPresent()) {
+      var entry = cached.get();
+      if (entry.fresh(ttl)) {
+        try {
+          var content = body(key);
+          touch(key);
+          Metrics.shared().increment("congreso_http_cache_total", "host", host, "resultado", "hit");
+          return CompletableFuture.completedFuture(
+              new Response(200, content, entry.contentType(), true));
+        } catch (NoSuchFileException e) {
+          return sendAsync(method, url, sinCache, body);
+        } catch (IOException e) {
+          return CompletableFuture.failedFuture(e);
+        }
+      }
+      if (entry.etag() != null) builder.header("If-None-Match", entry.etag());
+      if (entry.lastModified() != null) builder.header("If-Modified-Since", entry.lastModified());
+    }
+
+    var start = System.nanoTime();
+    return httpClient.sendAsync(builder.build(), HttpResponse.BodyHandlers.ofByteArray())
+        .handle((response, e) -> {
+          if (e != null) {
+            var cause = HostResilience.cause(e);
+            Metrics.shared().increment("congreso_http_errors_total", "host", host,
+                "error", cause.getClass().getSimpleName());
+            throw new CompletionException(cause);
+          }
+          Metrics.shared().observe("congreso_http_request_seconds", System.nanoTime() - start,
+              "host", host, "method", method);
+          try {
+            return CompletableFuture.completedFuture(complete(key, host, cached, response));
+          } catch (NoSuchFileException missing) {
+            // 304 de una entrada que ya no esta en disco: se vuelve a pedir completa
+            return sendAsync(method, url, sinCache, body);
+          } catch (IOException io) {
+            throw new CompletionException(io);
+          }
+        })
+        .thenCompose(response -> response);
+  }
+
+  Response complete(String key, String host, Optional<Entry> cached,
+      HttpResponse<byte[]> response) throws IOException {
+    Metrics.shared().increment("congreso_http_responses_total", "host", host,
+        "status", String.valueOf(response.statusCode()));
+    var headers = response.headers();
+    var maxAge = headers.firstValue("Cache-Control")
+        .map(MAX_AGE::matcher)
+        .filter(Matcher::find)
+        .map(m -> Long.parseLong(m.group(1)))
+        .orElse(0L);
+    if (response.statusCode() == 304 && cached.isPresent()) {
+      Metrics.shared().increment("congreso_http_cache_total", "host", host,
+          "resultado", "revalidado");
+      var entry = cached.get();
+      var content = body(key);
+      write(key, new Entry(
+          entry.url(),
+          headers.firstValue("ETag").orElse(entry.etag()),
+          headers.firstValue("Last-Modified").orElse(entry.lastModified()),
+          entry.contentType(),
+          System.currentTimeMillis(),
+          maxAge), null);
+      return new Response(200, content, entry.contentType(), true);
+    }
+    var contentType = headers.firstValue("Content-Type").orElse(null);
+    var content = decode(response);
+    if (enabled()) {
+      Metrics.shared().increment("congreso_http_cache_total", "host", host, "resultado", "miss");
+    }
+    if (response.statusCode() == 200 && enabled()) {
+      write(key, new Entry(
+          response.request().uri().toString(),
+          headers.firstValue("ETag").orElse(null),
+          headers.firstValue("Last-Modified").orElse(null),
+          contentType,
+          System.currentTimeMillis(),
+          maxAge), content);
+    }
+    return new Response(response.statusCode(), content, contentType, false);
+  }
+
+  /** Cuerpo sin {@code Content-Encoding}; la cache guarda siempre el cuerpo descomprimido. */
+  static byte[] decode(HttpResponse<byte[]> response) throws IOException {
+    var encoding = response.headers().firstValue("Content-Encoding").orElse("identity");
+    if (!encoding.equalsIgnoreCase("gzip")) return response.body();
+    try (var in = new GZIPInputStream(new ByteArrayInputStream(response.body()))) {
+      return in.readAllBytes();
+    }
+  }
+
+  static ExecutorService newExecutor() {
+    var count = new AtomicInteger();
+    return Executors.newFixedThreadPool(THREADS, r -> {
+      var t = new Thread(r, "http-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+  }
+
+  boolean enabled() {
+    return maxBytes > 0;
+  }
+
+  Path bodyPath(String key) {
+    return dir.resolve(key + ".body");
+  }
+
+  Path metaPath(String key) {
+    return dir.resolve(key + ".meta");
+  }
+
+  synchronized Optional<Entry> read(String key) {
+    if (!entries.containsKey(key)) return Optional.empty();
+    try {
+      if (!Files.exists(bodyPath(key))) throw new NoSuchFileException(bodyPath(key).toString());
+      return Optional.of(mapper.readValue(metaPath(key).toFile(), Entry.class));
+    } catch (FileNotFoundException | NoSuchFileException e) {
+      // borrada por fuera (o por evict en otro proceso): es un miss
+      remove(key);
+      return Optional.empty();
+    } catch (IOException e) {
+      LOG.warn("Entrada de cache invalida {}", key, e);
+      remove(key);
+      return Optional.empty();
+    }
+  }
+
+  synchronized byte[] body(String key) throws IOException {
+    try {
+      return Files.readAllBytes(bodyPath(key));
+    } catch (NoSuchFileException e) {
+      remove(key);
+      throw e;
+    }
+  }
+
+  synchronized void touch(String key) {
+    entries.get(key);
+    try {
+      Files.setLastModifiedTime(bodyPath(key), FileTime.fromMillis(System.currentTimeMillis()));
+    } catch (IOException e) {
+      LOG.warn("No se pudo actualizar la cache {}", key, e);
+    }
+  }
+
+  synchronized void write(String key, Entry entry, byte[] body) {
+    try {
+      Files.createDirectories(dir);
+      if (body != null) {
+        var tmp = Files.createTempFile(dir, key, ".tmp");
+        Files.write(tmp, body);
+        Files.move(tmp, bodyPath(key), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        var previous = entries.put(key, (long) body.length);
+        totalBytes += body.length - (previous == null ? 0 : previous);
+      } else {
+        touch(key);
+      }
+      var tmp = Files.createTempFile(dir, key, ".tmp");
+      mapper.writeValue(tmp.toFile(), entry);
+      Files.move(tmp, metaPath(key), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+      evict();
+    } catch (IOException e) {
+      LOG.warn("No se pudo escribir en la cache {}", entry.url(), e);
+    }
+  }
+
+  void evict() {
+    var it = entries.entrySet().iterator();
+    while (totalBytes > maxBytes && it.hasNext()) {
+      var eldest = it.next();
+      it.remove();
+      totalBytes -= eldest.getValue();
+      delete(eldest.getKey());
+    }
+  }
+
+  void remove(String key) {
+    var size = entries.remove(key);
+    if (size != null) totalBytes -= size;
+    delete(key);
+  }
+
+  /** Borra los archivos de {@code key}; si no estan ya no hay nada que borrar. */
+  void delete(String key) {
+    for (var path : new Path[] {bodyPath(key), metaPath(key)}) {
+      try {
+        Files.deleteIfExists(path);
+      } catch (IOException e) {
+        LOG.warn("No se pudo borrar de la cache {}", path, e);
+      }
+    }
+  }
+
+  void loadIndex() {
+    if (!Files.isDirectory(dir)) return;
+    try (var files = Files.list(dir)) {
+      files.filter(p -> p.getFileName().toString().endsWith(".body"))
+          .filter(p -> Files.exists(Path.of(p.toString().replace(".body", ".meta"))))
+          .sorted(Comparator.comparing(HttpCache::lastModified))
+          .forEach(p -> {
+            var name = p.getFileName().toString();
+            var size = p.toFile().length();
+            entries.put(name.substring(0, name.length() - ".body".length()), size);
+            totalBytes += size;
+          });
+      LOG.info("Cache HTTP en {}: {} entradas, {} bytes", dir, entries.size(), totalBytes);
+      evict();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static FileTime lastModified(Path p) {
+    try {
+      return Files.getLastModifiedTime(p);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0);
+    }
+  }
+
+  static String key(String method, String url, String body) {
+    try {
+      var digest = MessageDigest.getInstance("SHA-256");
+      digest.update((method + " " + url + "\n" + body).getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest.digest());
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  public record Entry(
+      String url,
+      String etag,
+      String lastModified,
+      String contentType,
+      long storedAt,
+      long maxAge
+  ) {
+    boolean fresh(Duration ttl) {
+      var age = System.currentTimeMillis() - storedAt;
+      return age < Math.max(ttl.toMillis(), maxAge * 1000);
+    }
+  }
+
+  public record Response(
+      int statusCode,
+      byte[] body,
+      String contentType,
+      boolean cached
+  ) {
+    public String text() {
+      return new String(body, charset().map(Charset::forName).orElse(StandardCharsets.UTF_8));
+    }
+
+    public Document document(String url) {
+      try {
+        // sin charset en la cabecera, Jsoup lo detecta desde el propio documento
+        return Jsoup.parse(new ByteArrayInputStream(body), charset().orElse(null), url);
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    Optional<String> charset() {
+      return Optional.ofNullable(contentType)
+          .map(CHARSET::matcher)
+          .filter(Matcher::find)
+          .map(m -> m.group(1).replace("\"", ""));
+    }
+  }
+}
@@ -0,0 +1,121 @@
+package op.congreso.pl.internal;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.UnaryOperator;
+import op.congreso.pl.ProyectosLeyMetadata;
+
+/**
+ * Canonicaliza los valores que se repiten entre proyectos de ley (congresistas, comisiones,
+ * estados, grupos parlamentarios) para que cada valor distinto exista una sola vez en memoria. Solo
+ * pasan por aqui valores con pocas variantes: titulos, sumillas y detalles de seguimiento no se
+ * internan, porque casi nunca se repiten y quedarian retenidos hasta el final del proceso.
+ */
+public final class Interner {
+
+  static final Interner shared = new Interner();
+
+  final Map<Object, Object> valores = new ConcurrentHashMap<>();
+
+  public static Interner shared() {
+    return shared;
+  }
+
+  @SuppressWarnings("unchecked")
+  <T> T canonical(T value) {
+    var actual = valores.putIfAbsent(value, value);
+    return actual == null ? value : (T) actual;
+  }
+
+  @SuppressWarnings("unchecked")
+  <T> T existing(T value) {
+    return (T) valores.get(value);
+  }
+
+  public String string(String value) {
+    return value == null ? null : canonical(value);
+  }
+
+  public Optional<String> string(Optional<String> value) {
+    if (value.isEmpty()) return Optional.empty();
+    var actual = existing(value);
+    if (actual != null) return actual;
+    var s = string(value.get());
+    return canonical(s == value.get() ? value : Optional.of(s));
+  }
+
+  public ProyectosLeyMetadata.Congresista congresista(ProyectosLeyMetadata.Congresista congresista) {
+    var actual = existing(congresista);
+    if (actual != null) return actual;
+    return canonical(new ProyectosLeyMetadata.Congresista(
+        string(congresista.nombreCompleto()),
+        string(congresista.dni()),
+        string(congresista.sexo()),
+        string(congresista.url())));
+  }
+
+  public Optional<ProyectosLeyMetadata.Congresista> congresista(
+      Optional<ProyectosLeyMetadata.Congresista> congresista) {
+    return congresista.isEmpty()
+        ? Optional.empty()
+        : canonical(Optional.of(congresista(congresista.get())));
+  }
+
+  public ProyectosLeyMetadata.Comision comision(ProyectosLeyMetadata.Comision comision) {
+    var actual = existing(comision);
+    if (actual != null) return actual;
+    return canonical(new ProyectosLeyMetadata.Comision(comision.id(), string(comision.nombre())));
+  }
+
+  /** Estado y comision del seguimiento; la fecha y el detalle se mantienen. */
+  public ProyectosLeyMetadata.Seguimiento seguimiento(ProyectosLeyMetadata.Seguimiento seguimiento) {
+    return new ProyectosLeyMetadata.Seguimiento(
+        seguimiento.fecha(),
+        seguimiento.detalle(),
+        string(seguimiento.estado()),
+        string(seguimiento.comision()));
+  }
+
+  /**
+   * Copia de {@code proyecto} con sus valores repetidos canonicalizados, para registros que no
+   * pasaron por los extractores (p. ej. leidos de JSON).
+   */
+  public ProyectosLeyMetadata.ProyectoLeyMetadata proyecto(ProyectosLeyMetadata.ProyectoLeyMetadata proyecto) {
+    return new ProyectosLeyMetadata.ProyectoLeyMetadata(
+        proyecto.periodo(),
+        proyecto.numero(),
+        proyecto.numeroPeriodo(),
+        proyecto.titulo(),
+        string(proyecto.estadoActual()),
+        proyecto.fechaPresentacion(),
+        string(proyecto.legislatura()),
+        string(proyecto.proponente()),
+        proyecto.sumilla(),
+        string(proyecto.grupoParlamentario()),
+        congresista(proyecto.autor()),
+        map(proyecto.coAutores(), this::congresista),
+        map(proyecto.adherentes(), this::congresista),
+        map(proyecto.seguimientos(), this::seguimiento),
+        map(proyecto.comisiones(), this::comision),
+        string(proyecto.comisionActual()),
+        proyecto.urlExpediente(),
+        proyecto.iniciativasAgrupadas(),
+        // los valores canonicalizados son iguales a los originales: el hash no cambia
+        proyecto.contentHash());
+  }
+
+  static <T> Set<T> map(Set<T> values, UnaryOperator<T> f) {
+    if (values.isEmpty()) return values;
+    var result = new LinkedHashSet<T>(values.size() * 4 / 3 + 1);
+    for (var value : values) result.add(f.apply(value));
+    return result;
+  }
+
+  /** Valores distintos retenidos. */
+  public int size() {
+    return valores.size();
+  }
+}
@@ -0,0 +1,254 @@
+package op.congreso.pl.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Contadores e histogramas de una ejecucion (etapas, HTTP, reintentos, filas y bytes escritos), y
+ * valores del proceso al terminar (RSS maximo, heap maximo tras GC, GC, ver {@link ProcessUsage}).
+ * Al final se vuelcan a {@code <congreso.metrics>.json} y {@code <congreso.metrics>.prom}, este
+ * ultimo en formato de texto de Prometheus.
+ */
+public class Metrics {
+
+  static final Logger LOG = LoggerFactory.getLogger(Metrics.class);
+
+  // limites de los buckets, en segundos
+  static final double[] BUCKETS = {0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60, 300};
+
+  static final Metrics shared = new Metrics();
+
+  static {
+    // el maximo del heap tras GC solo se conoce escuchando cada coleccion desde el inicio
+    ProcessUsage.vigilar();
+  }
+
+  static final ObjectMapper mapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+  final Map<Key, LongAdder> counters = new ConcurrentHashMap<>();
+  final Map<Key, Histogram> histograms = new ConcurrentHashMap<>();
+  final Map<Key, Long> gauges = new ConcurrentHashMap<>();
+
+  public static Metrics shared() {
+    return shared;
+  }
+
+  /** {@code labels} son pares nombre, valor. */
+  public void increment(String name, String... labels) {
+    add(name, 1, labels);
+  }
+
+  public void add(String name, long value, String... labels) {
+    counters.computeIfAbsent(Key.of(name, labels), k -> new LongAdder()).add(value);
+  }
+
+  public void observe(String name, long nanos, String... labels) {
+    histograms.computeIfAbsent(Key.of(name, labels), k -> new Histogram()).observe(nanos / 1e9);
+  }
+
+  /** Suma el tamaño actual de {@code path} a {@code congreso_bytes_written_total}. */
+  public void written(Path path) {
+    try {
+      add("congreso_bytes_written_total", Files.size(path), "archivo", path.getFileName().toString());
+    } catch (IOException e) {
+      LOG.warn("No se pudo leer el tamaño de {}", path, e);
+    }
+  }
+
+  /** Valor puntual: reemplaza al anterior con el mismo nombre y etiquetas. */
+  public void gauge(String name, long value, String... labels) {
+    gauges.put(Key.of(name, labels), value);
+  }
+
+  /** Registra el uso de recursos del proceso hasta ahora como gauges {@code congreso_process_*}. */
+  public void process() {
+    var usage = ProcessUsage.actual();
+    if (usage.peakRssBytes() >= 0) gauge("congreso_process_peak_rss_bytes", usage.peakRssBytes());
+    gauge("congreso_process_peak_heap_after_gc_bytes", usage.peakHeapAfterGcBytes());
+    gauge("congreso_process_heap_pool_peaks_sum_bytes", usage.heapPoolPeaksSumBytes());
+    gauge("congreso_process_max_heap_bytes", usage.maxHeapBytes());
+    gauge("congreso_process_gc_collections", usage.gcCount());
+    gauge("congreso_process_gc_milliseconds", usage.gcMillis());
+    LOG.info("{}", usage);
+  }
+
+  /** Mide desde ahora hasta {@code close()}. */
+  public Timer start(String name, String... labels) {
+    return new Timer(this, name, labels, System.nanoTime());
+  }
+
+  /** Escribe {@code <prefix>.json} y {@code <prefix>.prom}. */
+  public void write(String prefix) {
+    process();
+    try {
+      var json = Path.of(prefix + ".json");
+      if (json.getParent() != null) Files.createDirectories(json.getParent());
+      mapper.writeValue(json.toFile(), snapshot());
+      Files.writeString(Path.of(prefix + ".prom"), prometheus());
+      LOG.info("Metricas escritas en {}.json y {}.prom", prefix, prefix);
+    } catch (IOException e) {
+      LOG.warn("No se pudieron escribir las metricas en {}", prefix, e);
+    }
+  }
+
+  /** Escribe las metricas en la ruta de {@code congreso.metrics} (por defecto {@code metricas}). */
+  public void write() {
+    write(System.getProperty("congreso.metrics", "metricas"));
+  }
+
+  public Map<String, Object> snapshot() {
+    var cs = new ArrayList<Map<String, Object>>();
+    for (var e : sorted(counters)) {
+      var c = new LinkedHashMap<String, Object>();
+      c.put("name", e.getKey().name());
+      c.put("labels", e.getKey().labels());
+      c.put("value", e.getValue().sum());
+      cs.add(c);
+    }
+    var hs = new ArrayList<Map<String, Object>>();
+    for (var e : sorted(histograms)) {
+      var h = new LinkedHashMap<String, Object>();
+      h.put("name", e.getKey().name());
+      h.put("labels", e.getKey().labels());
+      h.put("count", e.getValue().count.sum());
+      h.put("sum", e.getValue().sum.sum());
+      var buckets = new LinkedHashMap<String, Long>();
+      var cumulative = e.getValue().cumulative();
+      for (int i = 0; i < BUCKETS.length; i++) buckets.put(String.valueOf(BUCKETS[i]), cumulative[i]);
+      buckets.put("+Inf", cumulative[BUCKETS.length]);
+      h.put("buckets", buckets);
+      hs.add(h);
+    }
+    var gs = new ArrayList<Map<String, Object>>();
+    for (var e : sorted(gauges)) {
+      var g = new LinkedHashMap<String, Object>();
+      g.put("name", e.getKey().name());
+      g.put("labels", e.getKey().labels());
+      g.put("value", e.getValue());
+      gs.add(g);
+    }
+    var snapshot = new LinkedHashMap<String, Object>();
+    snapshot.put("counters", cs);
+    snapshot.put("histograms", hs);
+    snapshot.put("gauges", gs);
+    return snapshot;
+  }
+
+  public String prometheus() {
+    var out = new StringBuilder();
+    String tipo = null;
+    for (var e : sorted(counters)) {
+      if (!e.getKey().name().equals(tipo)) {
+        tipo = e.getKey().name();
+        out.append("# TYPE ").append(tipo).append(" counter\n");
+      }
+      out.append(tipo).append(e.getKey().labels(null)).append(' ').append(e.getValue().sum()).append('\n');
+    }
+    for (var e : sorted(histograms)) {
+      var key = e.getKey();
+      if (!key.name().equals(tipo)) {
+        tipo = key.name();
+        out.append("# TYPE ").append(tipo).append(" histogram\n");
+      }
+      var cumulative = e.getValue().cumulative();
+      for (int i = 0; i <= BUCKETS.length; i++) {
+        var le = i < BUCKETS.length ? String.valueOf(BUCKETS[i]) : "+Inf";
+        out.append(tipo).append("_bucket").append(key.labels(le)).append(' ')
+            .append(cumulative[i]).append('\n');
+      }
+      out.append(tipo).append("_sum").append(key.labels(null)).append(' ')
+          .append(e.getValue().sum.sum()).append('\n');
+      out.append(tipo).append("_count").append(key.labels(null)).append(' ')
+          .append(e.getValue().count.sum()).append('\n');
+    }
+    for (var e : sorted(gauges)) {
+      if (!e.getKey().name().equals(tipo)) {
+        tipo = e.getKey().name();
+        out.append("# TYPE ").append(tipo).append(" gauge\n");
+      }
+      out.append(tipo).append(e.getKey().labels(null)).append(' ').append(e.getValue()).append('\n');
+    }
+    return out.toString();
+  }
+
+  static <V> List<Map.Entry<Key, V>> sorted(Map<Key, V> map) {
+    return map.entrySet().stream()
+        .sorted(Comparator.comparing((Map.Entry<Key, V> e) -> e.getKey().name())
+            .thenComparing(e -> e.getKey().labels().toString()))
+        .collect(Collectors.toList());
+  }
+
+  record Key(String name, Map<String, String> labels) {
+    static Key of(String name, String... labels) {
+      if (labels.length % 2 != 0) throw new IllegalArgumentException("labels: " + List.of(labels));
+      var map = new TreeMap<String, String>();
+      for (int i = 0; i < labels.length; i += 2) map.put(labels[i], labels[i + 1]);
+      return new Key(name, map);
+    }
+
+    String labels(String le) {
+      var all = new ArrayList<String>();
+      labels.forEach((k, v) -> all.add(k + "=\"" + escape(v) + "\""));
+      if (le != null) all.add("le=\"" + le + "\"");
+      return all.isEmpty() ? "" : all.stream().collect(Collectors.joining(",", "{", "}"));
+    }
+
+    static String escape(String value) {
+      return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+  }
+
+  static class Histogram {
+    final LongAdder[] buckets = new LongAdder[BUCKETS.length + 1];
+    final LongAdder count = new LongAdder();
+    final DoubleAdder sum = new DoubleAdder();
+
+    Histogram() {
+      for (int i = 0; i < buckets.length; i++) buckets[i] = new LongAdder();
+    }
+
+    void observe(double seconds) {
+      var i = 0;
+      while (i < BUCKETS.length && seconds > BUCKETS[i]) i++;
+      buckets[i].increment();
+      count.increment();
+      sum.add(seconds);
+    }
+
+    long[] cumulative() {
+      var result = new long[buckets.length];
+      long total = 0;
+      for (int i = 0; i < buckets.length; i++) {
+        total += buckets[i].sum();
+        result[i] = total;
+      }
+      return result;
+    }
+  }
+
+  public record Timer(Metrics metrics, String name, String[] labels, long start)
+      implements AutoCloseable {
+    public long elapsed() {
+      return System.nanoTime() - start;
+    }
+
+    @Override public void close() {
+      metrics.observe(name, elapsed(), labels);
+    }
+  }
+}
@@ -0,0 +1,136 @@
+package op.congreso.pl.internal;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Gzip comprimido por bloques en paralelo, como pigz: cada bloque se comprime por separado usando
+ * los ultimos 32 KB del bloque anterior como diccionario y termina en un flush de sincronizacion,
+ * de modo que la concatenacion de los bloques es un unico stream deflate valido. El CRC se calcula
+ * en el hilo que escribe y los bloques se escriben en orden.
+ */
+public class ParallelGzipOutputStream extends OutputStream {
+
+  static final int DICTIONARY = 32 * 1024;
+  static final byte[] HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+
+  final OutputStream out;
+  final ExecutorService executor;
+  final int blockSize;
+  final int maxPending;
+  final int level;
+  final ArrayDeque<Future<byte[]>> pending = new ArrayDeque<>();
+  final CRC32 crc = new CRC32();
+  // se reserva con la primera escritura: un archivo que no llega a escribirse no retiene el bloque
+  byte[] block;
+  int count;
+  byte[] dictionary;
+  long size;
+  boolean closed;
+
+  public ParallelGzipOutputStream(OutputStream out, ExecutorService executor, int blockSize,
+      int maxPending, int level) throws IOException {
+    this.out = out;
+    this.executor = executor;
+    this.blockSize = blockSize;
+    this.maxPending = maxPending;
+    this.level = level;
+    out.write(HEADER);
+  }
+
+  @Override public void write(int b) throws IOException {
+    if (count == blockSize) submit();
+    if (block == null) block = new byte[blockSize];
+    block[count++] = (byte) b;
+  }
+
+  @Override public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      if (count == blockSize) submit();
+      if (block == null) block = new byte[blockSize];
+      var n = Math.min(len, blockSize - count);
+      System.arraycopy(b, off, block, count, n);
+      count += n;
+      off += n;
+      len -= n;
+    }
+  }
+
+  void submit() throws IOException {
+    if (count == 0) return;
+    var input = block;
+    var length = count;
+    var dict = dictionary;
+    crc.update(input, 0, length);
+    size += length;
+    pending.add(executor.submit(() -> deflate(input, length, dict)));
+    dictionary = Arrays.copyOfRange(input, Math.max(0, length - DICTIONARY), length);
+    block = null;
+    count = 0;
+    while (pending.size() > maxPending) drain();
+  }
+
+  byte[] deflate(byte[] input, int length, byte[] dict) {
+    var deflater = new Deflater(level, true);
+    try {
+      if (dict != null) deflater.setDictionary(dict);
+      deflater.setInput(input, 0, length);
+      var output = new byte[length + (length >> 3) + 64];
+      var n = 0;
+      while (true) {
+        n += deflater.deflate(output, n, output.length - n, Deflater.SYNC_FLUSH);
+        if (n < output.length) break;
+        output = Arrays.copyOf(output, output.length * 2);
+      }
+      return Arrays.copyOf(output, n);
+    } finally {
+      deflater.end();
+    }
+  }
+
+  void drain() throws IOException {
+    try {
+      out.write(pending.remove().get());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    } catch (ExecutionException e) {
+      throw new IOException("Error comprimiendo bloque", e.getCause());
+    }
+  }
+
+  @Override public void flush() throws IOException {
+    out.flush();
+  }
+
+  @Override public void close() throws IOException {
+    if (closed) return;
+    closed = true;
+    try {
+      submit();
+      while (!pending.isEmpty()) drain();
+      // bloque final vacio
+      out.write(new byte[] {0x03, 0x00});
+      writeInt((int) crc.getValue());
+      writeInt((int) size);
+    } finally {
+      pending.forEach(f -> f.cancel(true));
+      out.close();
+    }
+  }
+
+  void writeInt(int v) throws IOException {
+    out.write(v & 0xff);
+    out.write((v >>> 8) & 0xff);
+    out.write((v >>> 16) & 0xff);
+    out.write((v >>> 24) & 0xff);
+  }
+}
@@ -0,0 +1,119 @@
+package op.congreso.pl.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import op.congreso.pl.Periodo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Ejecuta varios periodos a la vez. Todos arrancan juntos y sus consultas se reparten el limite de
+ * su host en {@link FetchExecutor}, que atiende primero al periodo de mayor
+ * {@link Periodo#prioridad()}; asi cada host se mantiene ocupado sin pasar de su limite. Las
+ * escrituras a SQLite van a un pool propio ({@code congreso.scheduler.writers} hilos), de modo que
+ * nunca ocupan un hilo de consulta. Con {@code congreso.scheduler.periodos} se limita cuantos
+ * periodos consultan a la vez (por defecto todos), para acotar la memoria: cada periodo en curso
+ * retiene su lista y su linea base.
+ */
+public class PeriodoScheduler {
+
+  static final Logger LOG = LoggerFactory.getLogger(PeriodoScheduler.class);
+
+  static final int WRITERS = Integer.getInteger("congreso.scheduler.writers", 2);
+  static final int PERIODOS = Integer.getInteger("congreso.scheduler.periodos", Integer.MAX_VALUE);
+
+  public interface Tarea {
+    void run(Periodo periodo) throws Exception;
+  }
+
+  final List<Periodo> periodos;
+
+  public PeriodoScheduler(Collection<Periodo> periodos) {
+    this.periodos = periodos.stream()
+        .distinct()
+        .sorted(Comparator.comparingInt(Periodo::prioridad).reversed())
+        .collect(Collectors.toList());
+  }
+
+  /**
+   * Ejecuta {@code consulta} para cada periodo y, cuando termina bien, {@code escritura} en el pool
+   * de escritura. Cualquiera de las dos puede ser {@code null}. Un periodo que falla no detiene a
+   * los demas.
+   *
+   * @return los periodos que fallaron, con su error
+   */
+  public Map<Periodo, Throwable> run(Tarea consulta, Tarea escritura) {
+    var errores = new ConcurrentHashMap<Periodo, Throwable>();
+    var count = new AtomicInteger();
+    ExecutorService writers = Executors.newFixedThreadPool(WRITERS, r -> {
+      var t = new Thread(r, "sqlite-writer-" + count.incrementAndGet());
+      t.setDaemon(true);
+      return t;
+    });
+    logHosts();
+    var enCurso = new Semaphore(Math.max(PERIODOS, 1));
+    try {
+      var hilos = new ArrayList<Thread>();
+      for (var periodo : periodos) {
+        if (consulta == null) {
+          if (escritura != null) writers.execute(() -> ejecutar(escritura, periodo, errores));
+          continue;
+        }
+        // el permiso se toma antes de crear el hilo, asi los periodos arrancan en orden de prioridad
+        enCurso.acquire();
+        var hilo = new Thread(() -> {
+          boolean ok;
+          try {
+            ok = ejecutar(consulta, periodo, errores);
+          } finally {
+            enCurso.release();
+          }
+          if (ok && escritura != null) writers.execute(() -> ejecutar(escritura, periodo, errores));
+        }, "periodo-" + periodo.texto());
+        hilo.start();
+        hilos.add(hilo);
+      }
+      for (var hilo : hilos) hilo.join();
+      writers.shutdown();
+      while (!writers.awaitTermination(1, TimeUnit.MINUTES)) {
+        LOG.info("Esperando escrituras pendientes");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      writers.shutdownNow();
+      throw new RuntimeException("Interrupted", e);
+    }
+    errores.forEach((periodo, e) -> LOG.error("Periodo {} fallido", periodo.texto(), e));
+    return errores;
+  }
+
+  static boolean ejecutar(Tarea tarea, Periodo periodo, Map<Periodo, Throwable> errores) {
+    try {
+      tarea.run(periodo);
+      return true;
+    } catch (Throwable e) {
+      errores.put(periodo, e);
+      return false;
+    }
+  }
+
+  void logHosts() {
+    var porHost = new LinkedHashMap<String, List<String>>();
+    for (var periodo : periodos) {
+      porHost.computeIfAbsent(periodo.host(), h -> new ArrayList<>()).add(periodo.texto());
+    }
+    porHost.forEach((host, textos) -> LOG.info("{}: periodos {} con {} consultas simultaneas",
+        host, textos, FetchExecutor.shared().budget(host)));
+  }
+}
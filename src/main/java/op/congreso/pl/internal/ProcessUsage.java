@@ -0,0 +1,90 @@
+package op.congreso.pl.internal;
+
+import com.sun.management.GarbageCollectionNotificationInfo;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.management.NotificationEmitter;
+import javax.management.openmbean.CompositeData;
+
+/**
+ * Uso de recursos del proceso hasta ahora: RSS maximo (de {@code /proc/self/status}, -1 fuera de
+ * Linux), maximo del heap ocupado justo despues de un GC, suma de los maximos de cada pool del heap,
+ * y colecciones y tiempo de GC segun los MXBeans.
+ *
+ * <p>El maximo tras GC es el heap que el proceso realmente necesito retener; se toma de las
+ * notificaciones de cada GC, que {@link #vigilar()} empieza a escuchar. La suma de los maximos por
+ * pool lo sobreestima: cada pool llega a su maximo en un momento distinto.
+ */
+public record ProcessUsage(long peakRssBytes, long peakHeapAfterGcBytes,
+    long heapPoolPeaksSumBytes, long maxHeapBytes, long gcCount, long gcMillis) {
+
+  static final AtomicBoolean vigilando = new AtomicBoolean();
+  static final AtomicLong peakHeapAfterGc = new AtomicLong(-1);
+
+  /** Empieza a registrar el heap ocupado tras cada GC; llamarlo mas de una vez no hace nada. */
+  public static void vigilar() {
+    if (!vigilando.compareAndSet(false, true)) return;
+    for (var gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      if (!(gc instanceof NotificationEmitter emitter)) continue;
+      emitter.addNotificationListener((notification, handback) -> {
+        if (!notification.getType()
+            .equals(GarbageCollectionNotificationInfo.GARBAGE_COLLECTION_NOTIFICATION)) {
+          return;
+        }
+        var info = GarbageCollectionNotificationInfo.from(
+            (CompositeData) notification.getUserData());
+        // todos los pools en el mismo instante, al terminar esta coleccion
+        long heap = 0;
+        for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+          if (pool.getType() != MemoryType.HEAP) continue;
+          var usage = info.getGcInfo().getMemoryUsageAfterGc().get(pool.getName());
+          if (usage != null) heap += usage.getUsed();
+        }
+        peakHeapAfterGc.accumulateAndGet(heap, Math::max);
+      }, null, null);
+    }
+  }
+
+  public static ProcessUsage actual() {
+    long pools = 0;
+    for (var pool : ManagementFactory.getMemoryPoolMXBeans()) {
+      if (pool.getType() == MemoryType.HEAP) pools += pool.getPeakUsage().getUsed();
+    }
+    // sin ninguna coleccion todavia, el heap ocupado ahora es lo mas que se retuvo
+    var afterGc = peakHeapAfterGc.get();
+    if (afterGc < 0) afterGc = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    long count = 0;
+    long millis = 0;
+    for (var gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+      count += Math.max(gc.getCollectionCount(), 0);
+      millis += Math.max(gc.getCollectionTime(), 0);
+    }
+    return new ProcessUsage(peakRss(), afterGc, pools, Runtime.getRuntime().maxMemory(), count,
+        millis);
+  }
+
+  static long peakRss() {
+    try {
+      for (var line : Files.readAllLines(Path.of("/proc/self/status"))) {
+        // VmHWM:    123456 kB
+        if (line.startsWith("VmHWM:")) {
+          return Long.parseLong(line.substring(6).replace("kB", "").trim()) * 1024;
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // sin /proc
+    }
+    return -1;
+  }
+
+  @Override public String toString() {
+    return ("RSS maximo %d MB, heap maximo tras GC %d de %d MB (suma de maximos por pool %d MB), "
+        + "GC %d colecciones en %.1f s").formatted(peakRssBytes >> 20, peakHeapAfterGcBytes >> 20,
+        maxHeapBytes >> 20, heapPoolPeaksSumBytes >> 20, gcCount, gcMillis / 1e3);
+  }
+}
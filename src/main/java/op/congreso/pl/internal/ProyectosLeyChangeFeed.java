@@ -0,0 +1,201 @@
+package op.congreso.pl.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+import op.congreso.pl.Periodo;
+import op.congreso.pl.ProyectosLeyMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Cambios de una extraccion respecto de la anterior, en JSON lines: proyectos nuevos y eliminados,
+ * cambios de estado y de comision, seguimientos nuevos y firmantes agregados o retirados. De la
+ * extraccion anterior se retiene por proyecto solo lo necesario para compararlo, y cada proyecto se
+ * compara con el suyo por {@code id()}, sin recorrer los demas. Si el hash de contenido coincide no
+ * hay nada que comparar.
+ */
+public class ProyectosLeyChangeFeed
+    implements Consumer<ProyectosLeyMetadata.ProyectoLeyMetadata>, Closeable {
+
+  static final Logger LOG = LoggerFactory.getLogger(ProyectosLeyChangeFeed.class);
+
+  static final ObjectMapper mapper = new ObjectMapper();
+
+  static final List<String> TIPOS = List.of("AUTOR", "COAUTOR", "ADHERENTE");
+  static final String[] NINGUNO = {};
+
+  final Periodo periodo;
+  final Artifacts.Artifact out;
+  final String detectado = Instant.now().toString();
+  // por numero de proyecto
+  final Map<Integer, Anterior> anteriores = new HashMap<>();
+  final Map<String, Integer> conteo = new LinkedHashMap<>();
+  // sin extraccion anterior no hay contra que comparar y el feed queda vacio
+  boolean base = false;
+  // proyectos nuevos o con contenido distinto, aunque el cambio no tenga linea en el feed
+  int distintos = 0;
+
+  ProyectosLeyChangeFeed(Periodo periodo, Artifacts.Artifact out) {
+    this.periodo = periodo;
+    this.out = out;
+  }
+
+  /** Feed publicado en {@code path} (ver {@link Artifacts#publish(Path)}). */
+  public static ProyectosLeyChangeFeed open(Periodo periodo, Path path) throws IOException {
+    return new ProyectosLeyChangeFeed(periodo, Artifacts.publish(path));
+  }
+
+  /** Registra un proyecto de la extraccion anterior. */
+  public void anterior(ProyectosLeyMetadata.ProyectoLeyMetadata pl) {
+    base = true;
+    // se retiene por cada proyecto del periodo: hashes ordenados en lugar de un Set<Integer>,
+    // arreglos de nombres en lugar de conjuntos, y estados, comisiones y nombres canonicalizados
+    var seguimientos = new int[pl.seguimientos().size()];
+    var i = 0;
+    for (var s : pl.seguimientos()) seguimientos[i++] = s.hashCode();
+    Arrays.sort(seguimientos);
+    var interner = Interner.shared();
+    anteriores.put(pl.numero(), new Anterior(
+        pl.contentHash(),
+        interner.string(pl.estadoActual()),
+        interner.string(pl.comisionActual().orElse(null)),
+        seguimientos,
+        firmantes(pl)));
+  }
+
+  @Override public synchronized void accept(ProyectosLeyMetadata.ProyectoLeyMetadata pl) {
+    if (!base) return;
+    var anterior = anteriores.remove(pl.numero());
+    if (anterior != null && anterior.hash() == pl.contentHash()) return;
+    distintos++;
+    if (anterior == null) {
+      var cambio = cambio(pl.id(), "nuevo")
+          .put("titulo", pl.titulo())
+          .put("estado", pl.estadoActual())
+          .put("fecha_presentacion", pl.fechaPresentacion().toString());
+      pl.comisionActual().ifPresent(c -> cambio.put("comision", c));
+      write(cambio);
+      return;
+    }
+    if (!pl.estadoActual().equals(anterior.estado())) {
+      write(cambio(pl.id(), "estado")
+          .put("anterior", anterior.estado())
+          .put("actual", pl.estadoActual()));
+    }
+    var comision = pl.comisionActual().orElse(null);
+    if (comision != null ? !comision.equals(anterior.comision()) : anterior.comision() != null) {
+      write(cambio(pl.id(), "comision")
+          .put("anterior", anterior.comision())
+          .put("actual", comision));
+    }
+    // por hash: una colision entre seguimientos del mismo proyecto es despreciable
+    for (var s : pl.seguimientos()) {
+      if (Arrays.binarySearch(anterior.seguimientos(), s.hashCode()) >= 0) continue;
+      var cambio = cambio(pl.id(), "seguimiento")
+          .put("fecha", s.fecha().toString())
+          .put("detalle", s.detalle());
+      s.estado().ifPresent(e -> cambio.put("estado", e));
+      s.comision().ifPresent(c -> cambio.put("comision", c));
+      write(cambio);
+    }
+    var firmantes = firmantes(pl);
+    for (int t = 0; t < TIPOS.size(); t++) {
+      var actuales = new LinkedHashSet<>(Arrays.asList(firmantes[t]));
+      var previos = new LinkedHashSet<>(Arrays.asList(anterior.firmantes()[t]));
+      if (actuales.equals(previos)) continue;
+      var cambio = cambio(pl.id(), "firmantes").put("firmante_tipo", TIPOS.get(t));
+      var agregados = cambio.putArray("agregados");
+      for (var f : actuales) if (!previos.contains(f)) agregados.add(f);
+      var retirados = cambio.putArray("retirados");
+      for (var f : previos) if (!actuales.contains(f)) retirados.add(f);
+      write(cambio);
+    }
+  }
+
+  /** Nombres de los firmantes por tipo, en el orden de {@link #TIPOS}. */
+  static String[][] firmantes(ProyectosLeyMetadata.ProyectoLeyMetadata pl) {
+    return new String[][] {
+        nombres(pl.autor().map(Set::of).orElse(Set.of())),
+        nombres(pl.coAutores()),
+        nombres(pl.adherentes())
+    };
+  }
+
+  static String[] nombres(Set<ProyectosLeyMetadata.Congresista> congresistas) {
+    if (congresistas.isEmpty()) return NINGUNO;
+    var interner = Interner.shared();
+    return congresistas.stream()
+        .map(c -> interner.string(c.nombreCompleto()))
+        .distinct()
+        .toArray(String[]::new);
+  }
+
+  ObjectNode cambio(String id, String tipo) {
+    conteo.merge(tipo, 1, Integer::sum);
+    Metrics.shared().increment("congreso_cambios_total", "periodo", periodo.texto(), "tipo", tipo);
+    return mapper.createObjectNode()
+        .put("detectado", detectado)
+        .put("periodo", periodo.texto())
+        .put("id", id)
+        .put("tipo", tipo);
+  }
+
+  void write(ObjectNode cambio) {
+    try {
+      out.write(mapper.writeValueAsBytes(cambio));
+      out.write('\n');
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Hasta aqui, todos los proyectos recibidos son iguales a los de la extraccion anterior. Tras
+   * {@link #commit()}, indica si la extraccion completa es identica a la anterior.
+   */
+  public synchronized boolean sinCambios() {
+    return base && distintos == 0;
+  }
+
+  /** Los proyectos anteriores que no volvieron a aparecer se registran como eliminados. */
+  public synchronized void commit() {
+    for (var numero : anteriores.keySet()) {
+      write(cambio(periodo.periodoId("%05d".formatted(numero)), "eliminado"));
+    }
+    distintos += anteriores.size();
+    anteriores.clear();
+    if (base && distintos == 0) {
+      LOG.info("Sin cambios en {} respecto de la extraccion anterior", periodo.texto());
+    } else if (base) {
+      LOG.info("Cambios de {}: {} ({} proyectos distintos)", periodo.texto(), conteo, distintos);
+    } else {
+      LOG.info("Sin extraccion anterior de {}, feed de cambios vacio", periodo.texto());
+    }
+    out.commit();
+  }
+
+  @Override public synchronized void close() throws IOException {
+    out.close();
+  }
+
+  record Anterior(
+      long hash,
+      String estado,
+      String comision,
+      int[] seguimientos,
+      String[][] firmantes
+  ) {}
+}
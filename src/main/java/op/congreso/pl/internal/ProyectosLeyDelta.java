@@ -0,0 +1,120 @@
+package op.congreso.pl.internal;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import op.congreso.pl.ProyectosLey;
+import op.congreso.pl.ProyectosLeyMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class ProyectosLeyDelta implements Function<ProyectosLey, ProyectosLeyMetadata> {
+
+  static final Logger LOG = LoggerFactory.getLogger(ProyectosLeyDelta.class);
+
+  final Map<Integer, ProyectosLey.ProyectoLey> listaAnterior = new HashMap<>();
+  final IntFunction<ProyectosLeyMetadata.ProyectoLeyMetadata> anteriores;
+  final Function<ProyectosLey, ProyectosLeyMetadata> extractMetadataFunction;
+  // proyectos que la extraccion anterior entrego sin metadatos nuevos
+  final Set<Integer> sinMetadatos = new HashSet<>();
+
+  public ProyectosLeyDelta(ProyectosLey listaAnterior,
+      ProyectosLeyMetadata anteriores,
+      Function<ProyectosLey, ProyectosLeyMetadata> extractMetadataFunction) {
+    this(listaAnterior, porNumero(anteriores), extractMetadataFunction);
+  }
+
+  /**
+   * Con la linea base en disco: cada registro anterior se lee del JSON solo cuando se compara, en
+   * lugar de retener el periodo completo.
+   */
+  public ProyectosLeyDelta(ProyectosLey listaAnterior,
+      ProyectosLeyMetadata.JsonIndex anteriores,
+      Function<ProyectosLey, ProyectosLeyMetadata> extractMetadataFunction) {
+    this(listaAnterior, anteriores::get, extractMetadataFunction);
+  }
+
+  ProyectosLeyDelta(ProyectosLey listaAnterior,
+      IntFunction<ProyectosLeyMetadata.ProyectoLeyMetadata> anteriores,
+      Function<ProyectosLey, ProyectosLeyMetadata> extractMetadataFunction) {
+    if (listaAnterior != null) {
+      for (var pl : listaAnterior.proyectos()) this.listaAnterior.put(pl.numero(), pl);
+    }
+    this.anteriores = anteriores;
+    this.extractMetadataFunction = extractMetadataFunction;
+  }
+
+  /**
+   * Proyectos que fallaron hasta el final en la extraccion anterior (ver
+   * {@link ProyectosLeyPipeline#sinMetadatos()}): se vuelven a consultar aunque su entrada de la
+   * lista coincida, porque la lista publicada ya es la nueva y la linea base no.
+   */
+  public ProyectosLeyDelta sinMetadatos(Set<Integer> numeros) {
+    sinMetadatos.addAll(numeros);
+    return this;
+  }
+
+  static IntFunction<ProyectosLeyMetadata.ProyectoLeyMetadata> porNumero(
+      ProyectosLeyMetadata anteriores) {
+    var map = new HashMap<Integer, ProyectosLeyMetadata.ProyectoLeyMetadata>();
+    for (var pl : anteriores.proyectos()) map.put(pl.numero(), pl);
+    return map::get;
+  }
+
+  /**
+   * Si el registro anterior es del proyecto de la entrada de la lista, segun el numero de su codigo
+   * ({@code 01234/2021-CR}). Las lineas base escritas con el {@code pleyId} del V2 como numero
+   * tienen, bajo el mismo numero, el expediente de otro proyecto.
+   */
+  public static boolean mismoProyecto(ProyectosLey.ProyectoLey pl,
+      ProyectosLeyMetadata.ProyectoLeyMetadata anterior) {
+    if (anterior.numero() != pl.numero()) return false;
+    if (anterior.numeroPeriodo().isEmpty()) return true;
+    var codigo = anterior.numeroPeriodo().get();
+    var fin = codigo.indexOf('/');
+    try {
+      return Integer.parseInt(codigo.substring(0, fin < 0 ? codigo.length() : fin).strip())
+          == pl.numero();
+    } catch (NumberFormatException e) {
+      return true;
+    }
+  }
+
+  @Override public ProyectosLeyMetadata apply(ProyectosLey proyectosLey) {
+    var cambiados = new ProyectosLey(proyectosLey.periodo);
+    var reutilizados = new LinkedHashSet<ProyectosLeyMetadata.ProyectoLeyMetadata>();
+    for (var pl : proyectosLey.proyectos()) {
+      reutilizable(pl).ifPresentOrElse(reutilizados::add, () -> cambiados.add(pl));
+    }
+    LOG.info("{} PLs nuevos o modificados, {} reutilizados de la linea base",
+        cambiados.proyectos().size(), reutilizados.size());
+
+    var meta = extractMetadataFunction.apply(cambiados);
+    meta.addAll(reutilizados);
+    return meta;
+  }
+
+  /** Metadatos de la linea base si la entrada de la lista no cambio, vacio si hay que extraerlos. */
+  public Optional<ProyectosLeyMetadata.ProyectoLeyMetadata> reutilizable(ProyectosLey.ProyectoLey pl) {
+    if (sinMetadatos.contains(pl.numero())) return Optional.empty();
+    var anterior = anteriores.apply(pl.numero());
+    if (anterior == null || cambiado(pl, anterior)) return Optional.empty();
+    return Optional.of(anterior);
+  }
+
+  boolean cambiado(ProyectosLey.ProyectoLey pl, ProyectosLeyMetadata.ProyectoLeyMetadata anterior) {
+    // metadatos de respaldo (p.ej. 404) se vuelven a consultar en cada ejecucion
+    if (anterior.equals(ProyectosLeyMetadata.ProyectoLeyMetadata.from(pl))) return true;
+    if (!mismoProyecto(pl, anterior)) return true;
+    var previo = listaAnterior.get(pl.numero());
+    if (previo != null) return !previo.equals(pl);
+    return !(anterior.titulo().equals(pl.titulo())
+        && anterior.estadoActual().equals(pl.estado())
+        && anterior.fechaPresentacion().equals(pl.presentacion()));
+  }
+}
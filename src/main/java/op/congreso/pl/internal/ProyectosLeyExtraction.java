@@ -0,0 +1,17 @@
+package op.congreso.pl.internal;
+
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import op.congreso.pl.Periodo;
+import op.congreso.pl.ProyectosLey;
+
+public interface ProyectosLeyExtraction extends Function<Periodo, ProyectosLey> {
+
+  /** Extrae la lista de proyectos de ley, entregando cada pagina a {@code pagina} apenas llega. */
+  ProyectosLey apply(Periodo periodo, Consumer<Set<ProyectosLey.ProyectoLey>> pagina);
+
+  @Override default ProyectosLey apply(Periodo periodo) {
+    return apply(periodo, p -> {});
+  }
+}
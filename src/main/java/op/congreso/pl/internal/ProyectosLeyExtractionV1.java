@@ -7,12 +7,13 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.LinkedHashSet;
 import java.util.Optional;
 import java.util.Set;
-import java.util.function.Function;
-import org.jsoup.Jsoup;
-import org.jsoup.nodes.Element;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import org.jsoup.nodes.Document;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import op.congreso.pl.Periodo;
@@ -20,77 +21,125 @@ import op.congreso.pl.ProyectosLey;
 
 import static op.congreso.pl.Constants.BASE_URL_V1;
 
-public class ProyectosLeyExtractionV1 implements Function<Periodo, ProyectosLey> {
+public class ProyectosLeyExtractionV1 implements ProyectosLeyExtraction {
 
   static final Logger LOG = LoggerFactory.getLogger(ProyectosLeyExtractionV1.class);
 
-  @Override public ProyectosLey apply(Periodo periodo) {
+  static final int LOOKAHEAD = Integer.getInteger("congreso.list.lookahead", 4);
+  static final DateTimeFormatter FECHA = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+  /**
+   * Pide hasta {@code LOOKAHEAD} paginas por adelantado ({@code Start=1}, {@code 1+batchSize}, ...)
+   * y las entrega en orden. La primera pagina incompleta marca el final de la lista; las paginas
+   * especulativas posteriores se cancelan y sus resultados (o errores) se descartan.
+   */
+  @Override public ProyectosLey apply(Periodo periodo,
+      Consumer<Set<ProyectosLey.ProyectoLey>> pagina) {
+    var host = FetchExecutor.host(BASE_URL_V1);
+    var pendientes = new ArrayDeque<Future<Set<ProyectosLey.ProyectoLey>>>();
+    var timer = Metrics.shared().start("congreso_stage_seconds",
+        "periodo", periodo.texto(), "etapa", "lista");
     try {
       var pls = new ProyectosLey(periodo);
 
       var index = 1;
-
-      var first = periodo.baseUrl() + index;
-      LOG.info("Extracting PL list from {}", first);
-      var proyectos = extractPaginaProyectos(periodo, first);
-      pls.addAll(proyectos);
-      while (proyectos.size() == periodo.batchSize()) {
+      while (pendientes.size() < LOOKAHEAD) {
+        pendientes.add(submitPagina(host, periodo, index));
         index = index + periodo.batchSize();
-        var url = periodo.baseUrl() + index;
-        LOG.info("Extracting PL list from {}", url);
-        proyectos = extractPaginaProyectos(periodo, url);
+      }
+      while (true) {
+        var proyectos = pendientes.remove().get();
         pls.addAll(proyectos);
+        pagina.accept(proyectos);
+        if (proyectos.size() != periodo.batchSize()) break;
+        pendientes.add(submitPagina(host, periodo, index));
+        index = index + periodo.batchSize();
       }
       LOG.info("{} PLs extracted", pls.proyectos().size());
       return pls;
     } catch (Exception e) {
       throw new RuntimeException("Error", e);
+    } finally {
+      pendientes.forEach(f -> f.cancel(true));
+      timer.close();
     }
   }
 
-  private Set<ProyectosLey.ProyectoLey> extractPaginaProyectos(Periodo periodo, String url) throws IOException {
+  private Future<Set<ProyectosLey.ProyectoLey>> submitPagina(String host, Periodo periodo, int index)
+      throws InterruptedException {
+    var url = periodo.baseUrl() + index;
+    return FetchExecutor.shared().submit(host, periodo.prioridad(), () -> {
+      LOG.info("Extracting PL list from {}", url);
+      return extractPaginaProyectos(periodo, url);
+    });
+  }
+
+  private Set<ProyectosLey.ProyectoLey> extractPaginaProyectos(Periodo periodo, String url)
+      throws IOException, InterruptedException {
+    var response = HttpCache.shared().getOk(url);
+    return parsePaginaProyectos(periodo, url, response.body(), response.charset());
+  }
+
+  Set<ProyectosLey.ProyectoLey> parsePaginaProyectos(Periodo periodo, String url, byte[] body,
+      Optional<String> charset) {
+    var html = DominoHtml.decode(body, charset);
     var proyectos = new LinkedHashSet<ProyectosLey.ProyectoLey>();
-    var doc = Jsoup.connect(url).get();
-    var table = doc.body().select("table[cellpadding=2]").first();
-    if (table == null) throw new IllegalStateException("table not found");
+    var filas = DominoHtml.lista(html);
     try {
-      var trs = table.select("tr[valign=top]");
-      for (var tr : trs) {
-        var tds = tr.select("td");
+      for (var tds : filas) {
         var pl = new ProyectosLey.ProyectoLey(
             periodo,
-            extractNumero(tds.get(0)),
-            Optional.ofNullable(extractFecha(tds.get(1))),
-            extractFecha(tds.get(2)),
-            extractTexto(tds.get(3)),
-            extractTexto(tds.get(4)),
+            Integer.parseInt(tds.get(0).links()),
+            Optional.ofNullable(extractFecha(tds.get(1).fonts())),
+            extractFecha(tds.get(2).fonts()),
+            tds.get(3).fonts(),
+            tds.get(4).fonts(),
             extractUrl(tds.get(0))
         );
         proyectos.add(pl);
       }
     } catch (Exception e) {
-      LOG.error("Error on {} with table {}", url, table, e);
+      LOG.error("Error on {} with table rows {}", url, filas, e);
     }
     return proyectos;
   }
 
-  private String extractTexto(Element element) {
-    return element.select("font").text();
+  /**
+   * Version sobre el DOM de Jsoup, como se hacia antes de {@link DominoHtml}; equivalente a {@link
+   * #parsePaginaProyectos(Periodo, String, byte[], Optional)}.
+   */
+  Set<ProyectosLey.ProyectoLey> parsePaginaProyectos(Periodo periodo, Document doc) {
+    var table = doc.body().select("table[cellpadding=2]").first();
+    if (table == null) throw new IllegalStateException("table not found");
+    var proyectos = new LinkedHashSet<ProyectosLey.ProyectoLey>();
+    try {
+      for (var tr : table.select("tr[valign=top]")) {
+        var tds = tr.select("td");
+        var pl = new ProyectosLey.ProyectoLey(
+            periodo,
+            Integer.parseInt(tds.get(0).select("a").text()),
+            Optional.ofNullable(extractFecha(tds.get(1).select("font").text())),
+            extractFecha(tds.get(2).select("font").text()),
+            tds.get(3).select("font").text(),
+            tds.get(4).select("font").text(),
+            BASE_URL_V1 + tds.get(0).select("a").last().attr("href")
+        );
+        proyectos.add(pl);
+      }
+    } catch (Exception e) {
+      LOG.error("Error on {}", doc.location(), e);
+    }
+    return proyectos;
   }
 
-  private LocalDate extractFecha(Element element) {
-    var text = element.select("font").text();
+  private LocalDate extractFecha(String text) {
     if (text.isBlank()) return null;
-    return LocalDate.parse(text, DateTimeFormatter.ofPattern("MM/dd/yyyy"));
-  }
-
-  private int extractNumero(Element element) {
-    String txt = element.select("a").text();
-    return Integer.parseInt(txt);
+    return LocalDate.parse(text, FECHA);
   }
 
-  private String extractUrl(Element element) {
-    return BASE_URL_V1 + element.select("a").last().attr("href");
+  private String extractUrl(DominoHtml.Celda celda) {
+    if (celda.href() == null) throw new IllegalStateException("link not found");
+    return BASE_URL_V1 + celda.href();
   }
 
   public static void main(String[] args) throws IOException {
@@ -5,42 +5,35 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import java.io.IOException;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.Optional;
-import java.util.function.Function;
+import java.util.Set;
+import java.util.function.Consumer;
 import op.congreso.pl.Constants;
 import op.congreso.pl.Periodo;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import op.congreso.pl.ProyectosLey;
 
-public class ProyectosLeyExtractionV2  implements Function<Periodo, ProyectosLey> {
+public class ProyectosLeyExtractionV2 implements ProyectosLeyExtraction {
   static final Logger LOG = LoggerFactory.getLogger(ProyectosLeyExtractionV2.class);
-  HttpClient httpClient = HttpClient.newBuilder().build();
   ObjectMapper mapper = new ObjectMapper();
 
-  @Override public ProyectosLey apply(Periodo periodo) {
+  @Override public ProyectosLey apply(Periodo periodo,
+      Consumer<Set<ProyectosLey.ProyectoLey>> pagina) {
     LOG.info("Iniciando extraccion de lista de proyectos de ley");
+    var timer = Metrics.shared().start("congreso_stage_seconds",
+        "periodo", periodo.texto(), "etapa", "lista");
     try {
       var pls = new ProyectosLey(periodo);
 
       var requestJson = mapper.createObjectNode()
           .put("perParId", periodo.desde());
-      final HttpRequest request = HttpRequest.newBuilder()
-          .POST(HttpRequest.BodyPublishers.ofString(mapper.writeValueAsString(requestJson)))
-          .header("Content-Type", "application/json")
-          .header("User-Agent", "Mozilla/5.0 Firefox/26.0")
-          .uri(URI.create(periodo.baseUrl()))
-          .build();
-      LOG.info("Request: " + request);
-      var response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+      LOG.info("Request: POST {}", periodo.baseUrl());
+      var response = HttpCache.shared().post(periodo.baseUrl(), mapper.writeValueAsString(requestJson));
       if (response.statusCode() != 200) throw new IllegalStateException("Error on POST request, response code: " + response.statusCode());
       var responseJson = mapper.readTree(response.body());
       if (responseJson.get("code").asInt() != 200 ||
@@ -81,10 +74,13 @@ public class ProyectosLeyExtractionV2  implements Function<Periodo, ProyectosLey
       }
 
 
+      pagina.accept(pls.proyectos());
       LOG.info("{} PLs extracted", pls.proyectos().size());
       return pls;
     } catch (Exception e) {
       throw new RuntimeException("Error", e);
+    } finally {
+      timer.close();
     }
   }
 
@@ -0,0 +1,163 @@
+package op.congreso.pl.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import op.congreso.pl.ProyectosLey;
+import op.congreso.pl.ProyectosLeyMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registro en disco (JSON lines, solo agregado) de los expedientes extraidos y de los que fallaron
+ * en una importacion en curso. Si el proceso se cae, la siguiente importacion del periodo retoma
+ * desde aqui y solo consulta lo que falta. El registro se elimina una vez publicado el JSON; uno
+ * mas viejo que {@code congreso.journal.maxAge}, de una importacion abandonada, se descarta.
+ */
+public class ProyectosLeyJournal implements Closeable {
+
+  static final Logger LOG = LoggerFactory.getLogger(ProyectosLeyJournal.class);
+
+  static final Duration MAX_AGE =
+      Duration.parse(System.getProperty("congreso.journal.maxAge", "PT24H"));
+
+  static final ObjectMapper mapper = new ObjectMapper()
+      .registerModule(new JavaTimeModule())
+      .registerModule(new Jdk8Module());
+
+  final Path path;
+  // ultimo expediente completado por numero: la entrada de la lista con que se extrajo y donde
+  // quedo su linea, que se vuelve a leer al reutilizarlo en lugar de retener los metadatos
+  final Map<Integer, Registrado> completados = new HashMap<>();
+  FileChannel registro;
+  final OutputStream out;
+
+  ProyectosLeyJournal(Path path) throws IOException {
+    this.path = path;
+    load();
+    this.out = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+  }
+
+  public static ProyectosLeyJournal open(Path path) throws IOException {
+    return new ProyectosLeyJournal(path);
+  }
+
+  void load() throws IOException {
+    if (!Files.exists(path)) return;
+    var edad = Duration.between(Files.getLastModifiedTime(path).toInstant(), Instant.now());
+    if (edad.compareTo(MAX_AGE) > 0) {
+      LOG.info("Registro {} de hace {}, se descarta", path, edad);
+      Files.delete(path);
+      return;
+    }
+    try (var in = new BufferedInputStream(Files.newInputStream(path))) {
+      var line = new ByteArrayOutputStream();
+      long posicion = 0;
+      for (int b = in.read(); b != -1; b = in.read()) {
+        if (b != '\n') {
+          line.write(b);
+          continue;
+        }
+        registrar(line.toByteArray(), posicion);
+        posicion += line.size() + 1;
+        line.reset();
+      }
+      if (line.size() > 0) {
+        // linea a medias de una ejecucion que se cayo mientras escribia: se corta el archivo en el
+        // ultimo salto de linea para que la siguiente entrada no quede pegada a ella
+        LOG.warn("Ultima linea de {} incompleta ({} bytes), se descarta", path, line.size());
+        try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+          channel.truncate(posicion);
+        }
+      }
+    }
+    registro = FileChannel.open(path, StandardOpenOption.READ);
+    LOG.info("Retomando desde {}: {} expedientes ya extraidos", path, completados.size());
+  }
+
+  void registrar(byte[] line, long posicion) {
+    Entrada entrada;
+    try {
+      entrada = mapper.readValue(line, Entrada.class);
+    } catch (IOException e) {
+      LOG.warn("Linea invalida en {} (posicion {}), se ignora", path, posicion);
+      return;
+    }
+    if (entrada.metadata() != null) {
+      completados.put(entrada.pl().numero(), new Registrado(entrada.pl(), posicion, line.length));
+    } else {
+      completados.remove(entrada.pl().numero());
+    }
+  }
+
+  /** Metadatos ya extraidos en esta importacion, si la entrada de la lista no cambio desde entonces. */
+  public synchronized Optional<ProyectosLeyMetadata.ProyectoLeyMetadata> completado(
+      ProyectosLey.ProyectoLey pl) {
+    var registrado = completados.get(pl.numero());
+    if (registrado == null || !registrado.pl().equals(pl)) return Optional.empty();
+    try {
+      var line = ByteBuffer.allocate(registrado.largo());
+      while (line.hasRemaining()) {
+        if (registro.read(line, registrado.posicion() + line.position()) < 0) {
+          throw new EOFException(path.toString());
+        }
+      }
+      var entrada = mapper.readValue(line.array(), Entrada.class);
+      return Optional.of(Interner.shared().proyecto(entrada.metadata()));
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  public synchronized void completado(ProyectosLey.ProyectoLey pl,
+      ProyectosLeyMetadata.ProyectoLeyMetadata metadata) {
+    append(new Entrada(pl, metadata, null));
+  }
+
+  public synchronized void fallido(ProyectosLey.ProyectoLey pl, Throwable error) {
+    append(new Entrada(pl, null, String.valueOf(error)));
+  }
+
+  void append(Entrada entrada) {
+    try {
+      out.write(mapper.writeValueAsBytes(entrada));
+      out.write('\n');
+      out.flush();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @Override public synchronized void close() throws IOException {
+    try {
+      out.close();
+    } finally {
+      if (registro != null) registro.close();
+    }
+  }
+
+  record Registrado(ProyectosLey.ProyectoLey pl, long posicion, int largo) {}
+
+  record Entrada(
+      ProyectosLey.ProyectoLey pl,
+      ProyectosLeyMetadata.ProyectoLeyMetadata metadata,
+      String error
+  ) {}
+}
@@ -2,16 +2,28 @@ package op.congreso.pl.internal;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.JDBCType;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import op.congreso.pl.Periodo;
 import op.congreso.pl.ProyectosLeyMetadata;
 
 public class ProyectosLeyLoadSqlite implements Consumer<ProyectosLeyMetadata> {
@@ -20,6 +32,8 @@ public class ProyectosLeyLoadSqlite implements Consumer<ProyectosLeyMetadata> {
 
   static final ObjectMapper mapper = new ObjectMapper();
   public static final String YYYY_MM_DD = "yyyy-MM-dd";
+  static final DateTimeFormatter FECHA_PRESENTACION = DateTimeFormatter.ofPattern(YYYY_MM_DD);
+  static final DateTimeFormatter FECHA_SEGUIMIENTO = DateTimeFormatter.ofPattern("yyyy/MM/dd");
 
   static List<TableLoad> tableLoadList = List.of(
       new ProyectoTableLoad(),
@@ -28,38 +42,453 @@ public class ProyectosLeyLoadSqlite implements Consumer<ProyectosLeyMetadata> {
       new IniciativaAgrupadaTableLoad()
   );
 
+  static List<FtsIndex> ftsIndexList = List.of(
+      new FtsIndex("proyecto_ley", List.of("titulo", "sumilla")),
+      new FtsIndex("seguimiento", List.of("detalle"))
+  );
+
   @Override public void accept(ProyectosLeyMetadata meta) {
-    LOG.info("Iniciando carga a SQLite");
-    var jdbcUrl = "jdbc:sqlite:%s.db".formatted(meta.periodo.filename());
-    try (var connection = DriverManager.getConnection(jdbcUrl)) {
+    try (var loader = open(meta.periodo)) {
+      for (var m : meta.proyectos()) loader.accept(m);
+      loader.commit();
+    } catch (Exception e) {
+      LOG.error("Error cargando a SQLite", e);
+    }
+  }
+
+  public static Loader open(Periodo periodo) throws SQLException {
+    return open(periodo, false);
+  }
+
+  /**
+   * Con {@code upsert} la base existente se actualiza en lugar de recrearse: solo se reescriben los
+   * proyectos cuyo hash de contenido ({@code proyecto_ley.hash}) cambio y se eliminan los que ya no
+   * aparecen.
+   */
+  public static Loader open(Periodo periodo, boolean upsert) throws SQLException {
+    return open(periodo.dbPath(), upsert);
+  }
+
+  public static Loader open(Path database, boolean upsert) throws SQLException {
+    return new Loader(database, upsert);
+  }
+
+  /**
+   * Une las bases de cada periodo en {@code database}, con el mismo esquema mas un indice por
+   * periodo. Las filas se copian con ATTACH e INSERT ... SELECT, sin volver a leer los JSON, y las
+   * tablas resumen se combinan a partir de las de cada base. La base se arma en un temporal que
+   * reemplaza al destino solo si se completa.
+   */
+  public static void merge(Path database, List<Path> bases) throws SQLException, IOException {
+    var start = System.nanoTime();
+    var base = database.getFileName().toString();
+    var tmp = database.resolveSibling(base + ".tmp");
+    Files.deleteIfExists(tmp);
+    var agregados = new AggregateTables();
+    // columnas de cada tabla de la base combinada, en el orden en que se crean
+    var tables = new LinkedHashMap<String, List<String>>();
+    for (var tableLoad : tableLoadList) tables.put(tableLoad.tableName, tableLoad.columns());
+    tables.putAll(agregados.columns());
+    try {
+      try (var connection = DriverManager.getConnection("jdbc:sqlite:%s".formatted(tmp));
+          var statement = connection.createStatement()) {
+        // archivo nuevo que nadie mas lee hasta publicarse: sin journal
+        statement.executeUpdate("pragma page_size = 32768");
+        statement.executeUpdate("pragma journal_mode = off");
+        statement.executeUpdate("pragma synchronous = off");
+        statement.executeUpdate("pragma temp_store = memory");
+        for (var tableLoad : tableLoadList) {
+          statement.executeUpdate(tableLoad.createTableStatement());
+        }
+        agregados.write(connection);
+
+        for (var periodo : bases) {
+          var copia = System.nanoTime();
+          try (var attach = connection.prepareStatement("attach database ? as periodo")) {
+            attach.setString(1, periodo.toString());
+            attach.executeUpdate();
+          }
+          try {
+            connection.setAutoCommit(false);
+            for (var e : tables.entrySet()) {
+              var table = e.getKey();
+              if (!exists(connection, "periodo", table)) {
+                LOG.warn("{} has no table {}, skipped", periodo, table);
+                continue;
+              }
+              // por nombre: una base anterior puede no tener una columna (hash) o tenerla al final,
+              // agregada con alter table
+              var columnas = columns(connection, "periodo", table);
+              var select = e.getValue().stream()
+                  .map(c -> columnas.contains(c) ? c : "null")
+                  .collect(Collectors.joining(", "));
+              var rows = statement.executeUpdate(
+                  "insert into main.%s (%s) select %s from periodo.%s"
+                      .formatted(table, String.join(", ", e.getValue()), select, table));
+              Metrics.shared().add("congreso_sqlite_rows_written_total", rows,
+                  "base", base, "tabla", table);
+            }
+            connection.commit();
+          } finally {
+            connection.setAutoCommit(true);
+            statement.executeUpdate("detach database periodo");
+          }
+          LOG.info("{} merged in {} ms", periodo, (System.nanoTime() - copia) / 1_000_000);
+        }
+        agregados.combine(connection);
+
+        var indices = System.nanoTime();
+        for (var tableLoad : tableLoadList) {
+          for (String s : tableLoad.createIndexesStatement()) statement.executeUpdate(s);
+        }
+        // las consultas por periodo filtran proyecto_ley y llegan a las demas tablas por su id
+        statement.executeUpdate(new ProyectoTableLoad().index("periodo"));
+        for (var ftsIndex : ftsIndexList) {
+          statement.executeUpdate(ftsIndex.createStatement());
+          statement.executeUpdate(ftsIndex.rebuildStatement());
+          for (var s : ftsIndex.triggerStatements()) statement.executeUpdate(s);
+        }
+        statement.executeUpdate("pragma optimize;");
+        LOG.info("Indexes created in {} ms", (System.nanoTime() - indices) / 1_000_000);
+      }
+      Files.move(tmp, database, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (SQLException | IOException | RuntimeException e) {
+      Files.deleteIfExists(tmp);
+      throw e;
+    }
+    LOG.info("{} bases merged into {} in {} ms", bases.size(), database,
+        (System.nanoTime() - start) / 1_000_000);
+    Metrics.shared().observe("congreso_stage_seconds", System.nanoTime() - start,
+        "base", base, "etapa", "sqlite_combinada");
+  }
+
+  static Set<String> columns(Connection connection, String schema, String table)
+      throws SQLException {
+    var columns = new HashSet<String>();
+    try (var rs = connection.createStatement()
+        .executeQuery("pragma %s.table_info(%s)".formatted(schema, table))) {
+      while (rs.next()) columns.add(rs.getString("name"));
+    }
+    return columns;
+  }
+
+  static boolean exists(Connection connection, String schema, String table) throws SQLException {
+    try (var ps = connection.prepareStatement(
+        "select 1 from %s.sqlite_master where type = 'table' and name = ?".formatted(schema))) {
+      ps.setString(1, table);
+      try (var rs = ps.executeQuery()) {
+        return rs.next();
+      }
+    }
+  }
+
+  /**
+   * Carga en una sola pasada: cada registro alimenta las sentencias de todas las tablas. Los inserts
+   * se ejecutan en lotes de {@code congreso.sqlite.chunk} proyectos; en una carga completa cada lote
+   * se confirma y los indices secundarios se crean al final, sobre las tablas ya cargadas, y en
+   * modo upsert toda la actualizacion es una sola transaccion.
+   *
+   * <p>La carga solo se completa si se llamo a {@link #commit()} antes de cerrar: recien entonces se
+   * eliminan los proyectos que no aparecieron y se escriben las tablas resumen y los indices. Sin
+   * commit, una carga completa (que se arma en un temporal) descarta el temporal y deja la base
+   * anterior, y una carga upsert deshace la transaccion en curso.
+   */
+  public static class Loader
+      implements Consumer<ProyectosLeyMetadata.ProyectoLeyMetadata>, AutoCloseable {
+    static final int CHUNK_SIZE = Integer.getInteger("congreso.sqlite.chunk", 5000);
+
+    final Connection connection;
+    final Path database;
+    // carga completa: base nueva en un temporal que reemplaza a la anterior al cerrar con commit
+    final Path tmp;
+    final String base;
+    final boolean upsert;
+    boolean committed = false;
+    final Map<TableLoad, PreparedStatement> deletes = new LinkedHashMap<>();
+    final Map<TableLoad, PreparedStatement> statements = new LinkedHashMap<>();
+    // hash de contenido de cada proyecto ya cargado, solo en modo upsert
+    final Map<String, String> existentes = new HashMap<>();
+    // se alimentan con todos los proyectos, tambien los que no cambiaron en modo upsert
+    final AggregateTables agregados = new AggregateTables();
+    final long start = System.nanoTime();
+    int pending = 0;
+    int total = 0;
+    int actualizados = 0;
+
+    Loader(Path database, boolean upsert) throws SQLException {
+      LOG.info("Iniciando carga a SQLite");
+      this.database = database;
+      this.base = database.getFileName().toString();
+      this.upsert = upsert;
+      this.tmp = upsert ? null : database.resolveSibling(base + ".tmp");
+      if (tmp != null) deleteTmp();
+      var jdbcUrl = "jdbc:sqlite:%s".formatted(upsert ? database : tmp);
+      connection = DriverManager.getConnection(jdbcUrl);
+      try {
+        prepare();
+      } catch (SQLException | RuntimeException e) {
+        try (connection) {
+          if (tmp != null) deleteTmp();
+        }
+        throw e;
+      }
+    }
+
+    void prepare() throws SQLException {
       var statement = connection.createStatement();
       statement.executeUpdate("pragma journal_mode = WAL");
       statement.executeUpdate("pragma synchronous = off");
       statement.executeUpdate("pragma temp_store = memory");
       statement.executeUpdate("pragma mmap_size = 300000000");
       statement.executeUpdate("pragma page_size = 32768");
+      connection.setAutoCommit(false);
       for (var tableLoad : tableLoadList) {
-        LOG.info("Loading {}", tableLoad.tableName);
-        statement.executeUpdate(tableLoad.dropTableStatement());
+        if (!upsert) statement.executeUpdate(tableLoad.dropTableStatement());
         statement.executeUpdate(tableLoad.createTableStatement());
-        for (String s : tableLoad.createIndexesStatement()) {
-          statement.executeUpdate(s);
+        if (upsert) {
+          for (String s : tableLoad.createIndexesStatement()) {
+            statement.executeUpdate(s);
+          }
+          if (tableLoad instanceof ProyectoTableLoad) loadHashes(statement);
+          deletes.put(tableLoad, connection.prepareStatement(tableLoad.deleteStatement()));
+          statements.put(tableLoad, connection.prepareStatement(tableLoad.upsertStatement()));
+        } else {
+          statements.put(tableLoad, connection.prepareStatement(tableLoad.prepareStatement()));
+        }
+        LOG.info("Table {} ready", tableLoad.tableName);
+      }
+      var fts = System.nanoTime();
+      for (var ftsIndex : ftsIndexList) {
+        if (!upsert) {
+          statement.executeUpdate(ftsIndex.dropStatement());
+          statement.executeUpdate(ftsIndex.createStatement());
+        } else {
+          // base creada antes de los indices de texto: se indexa lo que ya tiene
+          if (!ftsIndex.exists(connection)) {
+            statement.executeUpdate(ftsIndex.createStatement());
+            statement.executeUpdate(ftsIndex.rebuildStatement());
+          }
+          for (var s : ftsIndex.triggerStatements()) statement.executeUpdate(s);
         }
-        LOG.info("Table {} created", tableLoad.tableName);
+      }
+      connection.commit();
+      if (upsert) stage("sqlite_fts", fts);
+    }
 
-        var ps = connection.prepareStatement(tableLoad.prepareStatement());
-        LOG.info("Statement for {} prepared", tableLoad.tableName);
+    void loadHashes(Statement statement) throws SQLException {
+      // base creada antes de la columna: sus proyectos quedan sin hash y se reescriben una vez
+      if (!hasColumn("proyecto_ley", "hash")) {
+        statement.executeUpdate("alter table proyecto_ley add column hash text");
+      }
+      try (var rs = statement.executeQuery("select id, hash from proyecto_ley")) {
+        while (rs.next()) existentes.put(rs.getString(1), rs.getString(2));
+      }
+    }
 
-        for (var m : meta.proyectos()) tableLoad.addBatch(ps, m);
+    boolean hasColumn(String table, String column) throws SQLException {
+      try (var rs = connection.createStatement()
+          .executeQuery("pragma table_info(%s)".formatted(table))) {
+        while (rs.next()) if (column.equals(rs.getString("name"))) return true;
+      }
+      return false;
+    }
 
-        LOG.info("Batch for {} ready", tableLoad.tableName);
-        ps.executeBatch();
-        LOG.info("Table {} updated", tableLoad.tableName);
+    @Override public void accept(ProyectosLeyMetadata.ProyectoLeyMetadata m) {
+      agregados.accept(m);
+      try {
+        if (upsert) {
+          // sin cambios no se generan ni comparan sus filas
+          var existente = existentes.remove(m.id());
+          if (ContentHash.texto(m.contentHash()).equals(existente)) return;
+          for (var e : deletes.entrySet()) {
+            if (e.getKey() instanceof ProyectoTableLoad) continue;
+            e.getValue().setString(1, m.id());
+            e.getValue().addBatch();
+          }
+          for (var e : statements.entrySet()) e.getKey().addBatch(e.getValue(), m);
+          actualizados++;
+        } else {
+          for (var e : statements.entrySet()) e.getKey().addBatch(e.getValue(), m);
+        }
+        total++;
+        if (++pending == CHUNK_SIZE) commitChunk();
+      } catch (SQLException | IOException e) {
+        throw new RuntimeException("Error cargando " + m.id(), e);
+      }
+    }
+
+    void commitChunk() throws SQLException {
+      // los deletes van antes que los inserts de los mismos proyectos
+      for (var e : deletes.entrySet()) {
+        count("congreso_sqlite_rows_deleted_total", e.getKey(), e.getValue().executeBatch());
+      }
+      for (var e : statements.entrySet()) {
+        count("congreso_sqlite_rows_written_total", e.getKey(), e.getValue().executeBatch());
+      }
+      // la base anterior solo cambia si la carga se completa
+      if (!upsert) connection.commit();
+      pending = 0;
+    }
+
+    void count(String name, TableLoad tableLoad, int[] updates) {
+      long rows = 0;
+      for (var u : updates) if (u > 0) rows += u;
+      Metrics.shared().add(name, rows, "base", base, "tabla", tableLoad.tableName);
+    }
+
+    void stage(String etapa, long start) {
+      Metrics.shared().observe("congreso_stage_seconds", System.nanoTime() - start,
+          "base", base, "etapa", etapa);
+    }
+
+    /** La carga termino bien: al cerrar se completa y se publica. */
+    public void commit() {
+      committed = true;
+    }
+
+    void deleteTmp() {
+      for (var sufijo : List.of("", "-wal", "-shm", "-journal")) {
+        try {
+          Files.deleteIfExists(tmp.resolveSibling(tmp.getFileName() + sufijo));
+        } catch (IOException e) {
+          LOG.warn("No se pudo eliminar {}{}", tmp, sufijo, e);
+        }
+      }
+    }
+
+    @Override public void close() throws SQLException {
+      if (!committed) {
+        try (connection) {
+          connection.rollback();
+        } finally {
+          if (tmp != null) deleteTmp();
+          LOG.warn("Carga a {} sin commit, se descarta", database);
+        }
+        return;
+      }
+      try {
+        finish();
+      } catch (SQLException | RuntimeException e) {
+        if (tmp != null) deleteTmp();
+        throw e;
+      }
+      if (tmp != null) {
+        try {
+          Files.move(tmp, database, StandardCopyOption.REPLACE_EXISTING,
+              StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+          deleteTmp();
+          throw new SQLException("No se pudo publicar " + database, e);
+        }
+      }
+    }
+
+    void finish() throws SQLException {
+      try (connection) {
+        if (upsert) {
+          // los proyectos que no se volvieron a cargar ya no existen
+          for (var id : existentes.keySet()) {
+            for (var ps : deletes.values()) {
+              ps.setString(1, id);
+              ps.addBatch();
+            }
+          }
+          LOG.info("{} PLs updated, {} PLs removed", actualizados, existentes.size());
+        }
+        commitChunk();
+        var inserted = System.nanoTime();
+        LOG.info("{} PLs written in {} ms", total, (inserted - start) / 1_000_000);
+        stage("sqlite_insercion", start);
+
+        var agregacion = System.nanoTime();
+        agregados.write(connection);
+        connection.commit();
+        LOG.info("Aggregate tables written in {} ms", (System.nanoTime() - agregacion) / 1_000_000);
+        stage("sqlite_agregados", agregacion);
+        inserted = System.nanoTime();
+
+        var statement = connection.createStatement();
+        if (!upsert) {
+          for (var tableLoad : tableLoadList) {
+            for (String s : tableLoad.createIndexesStatement()) {
+              statement.executeUpdate(s);
+            }
+          }
+          connection.commit();
+          LOG.info("Indexes created in {} ms", (System.nanoTime() - inserted) / 1_000_000);
+          stage("sqlite_indices", inserted);
+        }
+
+        var optimize = System.nanoTime();
+        connection.setAutoCommit(true);
+        // en modo upsert el archivo se mantiene estable, sin reescribirlo completo
+        if (!upsert) statement.executeUpdate("pragma vacuum;");
+        statement.executeUpdate("pragma optimize;");
+        LOG.info("Vacuum and optimize in {} ms", (System.nanoTime() - optimize) / 1_000_000);
+        stage("sqlite_optimizacion", optimize);
+
+        if (!upsert) {
+          // despues del vacuum, que puede renumerar los rowid que referencian los indices de texto
+          var fts = System.nanoTime();
+          for (var ftsIndex : ftsIndexList) {
+            statement.executeUpdate(ftsIndex.rebuildStatement());
+            for (var s : ftsIndex.triggerStatements()) statement.executeUpdate(s);
+          }
+          LOG.info("Full-text indexes built in {} ms", (System.nanoTime() - fts) / 1_000_000);
+          stage("sqlite_fts", fts);
+        }
       }
-      statement.executeUpdate("pragma vacuum;");
-      statement.executeUpdate("pragma optimize;");
-    } catch (Exception e) {
-      LOG.error("Error cargando a SQLite", e);
+    }
+  }
+
+  /**
+   * Indice FTS5 de contenido externo sobre columnas de texto de {@code table}, con el tokenizador
+   * {@code unicode61} sin diacriticos: "comision" encuentra "Comisión". En una carga completa se
+   * construye de una vez al final; en modo upsert lo mantienen al dia triggers sobre la tabla.
+   */
+  static class FtsIndex {
+    final String table;
+    final String name;
+    final List<String> columns;
+
+    FtsIndex(String table, List<String> columns) {
+      this.table = table;
+      this.name = table + "_fts";
+      this.columns = columns;
+    }
+
+    String createStatement() {
+      return "create virtual table if not exists %s using fts5(%s, content=[%s], "
+          .formatted(name, String.join(", ", columns), table)
+          + "tokenize='unicode61 remove_diacritics 2')";
+    }
+
+    String dropStatement() {
+      return "drop table if exists %s".formatted(name);
+    }
+
+    String rebuildStatement() {
+      return "insert into %s(%s) values('rebuild')".formatted(name, name);
+    }
+
+    boolean exists(Connection connection) throws SQLException {
+      return ProyectosLeyLoadSqlite.exists(connection, "main", name);
+    }
+
+    List<String> triggerStatements() {
+      var cols = String.join(", ", columns);
+      var nuevos = columns.stream().map(c -> "new." + c).collect(Collectors.joining(", "));
+      var anteriores = columns.stream().map(c -> "old." + c).collect(Collectors.joining(", "));
+      var insert = "insert into %s(rowid, %s) values (new.rowid, %s);".formatted(name, cols, nuevos);
+      var delete = "insert into %s(%s, rowid, %s) values ('delete', old.rowid, %s);"
+          .formatted(name, name, cols, anteriores);
+      return List.of(
+          "create trigger if not exists %s_ai after insert on %s begin %s end"
+              .formatted(name, table, insert),
+          "create trigger if not exists %s_ad after delete on %s begin %s end"
+              .formatted(name, table, delete),
+          "create trigger if not exists %s_au after update on %s begin %s %s end"
+              .formatted(name, table, delete, insert));
     }
   }
 
@@ -76,17 +505,43 @@ public class ProyectosLeyLoadSqlite implements Consumer<ProyectosLeyMetadata> {
 
     abstract String createTableStatement();
 
+    /** Columnas de la tabla, en el orden de {@link #createTableStatement()}. */
+    abstract List<String> columns();
+
     abstract List<String> createIndexesStatement();
 
     String index(String field) {
-      return "CREATE INDEX %s_%s ON %s(\"%s\");\n"
+      return "CREATE INDEX IF NOT EXISTS %s_%s ON %s(\"%s\");\n"
           .formatted(tableName, field, tableName, field);
     }
 
     abstract String prepareStatement();
 
-    abstract void addBatch(PreparedStatement ps, ProyectosLeyMetadata.ProyectoLeyMetadata pl)
-        throws SQLException, IOException;
+    String upsertStatement() {
+      return prepareStatement();
+    }
+
+    String deleteStatement() {
+      return "delete from %s where proyecto_ley_id = ?".formatted(tableName);
+    }
+
+    abstract List<Object[]> rows(ProyectosLeyMetadata.ProyectoLeyMetadata pl) throws IOException;
+
+    void addBatch(PreparedStatement ps, ProyectosLeyMetadata.ProyectoLeyMetadata pl)
+        throws SQLException, IOException {
+      addBatch(ps, rows(pl));
+    }
+
+    void addBatch(PreparedStatement ps, List<Object[]> rows) throws SQLException {
+      for (var row : rows) {
+        for (int i = 0; i < row.length; i++) {
+          if (row[i] == null) ps.setNull(i + 1, JDBCType.VARCHAR.ordinal());
+          else if (row[i] instanceof Integer n) ps.setInt(i + 1, n);
+          else ps.setString(i + 1, row[i].toString());
+        }
+        ps.addBatch();
+      }
+    }
   }
 
   static class ProyectoTableLoad extends TableLoad {
@@ -96,7 +551,7 @@ public class ProyectosLeyLoadSqlite implements Consumer<ProyectosLeyMetadata> {
 
     @Override String createTableStatement() {
       return """
-          create table %s (
+          create table if not exists %s (
             id text primary key,
             periodo text not null,
             numero integer not null,
@@ -106,24 +561,33 @@ public class ProyectosLeyLoadSqlite implements Consumer<ProyectosLeyMetadata> {
             proponente text,
             grupo_parlamentario text,
             ultimo_estado text not null,
-            
+
             titulo text not null,
             sumilla text,
-            
+
             ultima_comision text,
             expediente_url text,
-            
+
             firmantes text,
             autor text,
             coautores text,
             adherentes text,
-            
+
             comisiones text,
-            iniciativas_agrupadas text
+            iniciativas_agrupadas text,
+
+            hash text
           )
           """.formatted(tableName);
     }
 
+    @Override List<String> columns() {
+      return List.of("id", "periodo", "numero", "numero_periodo", "legislatura",
+          "presentacion_fecha", "proponente", "grupo_parlamentario", "ultimo_estado", "titulo",
+          "sumilla", "ultima_comision", "expediente_url", "firmantes", "autor", "coautores",
+          "adherentes", "comisiones", "iniciativas_agrupadas", "hash");
+    }
+
     @Override List<String> createIndexesStatement() {
       return List.of(
           index("legislatura"),
@@ -141,61 +605,72 @@ public class ProyectosLeyLoadSqlite implements Consumer<ProyectosLeyMetadata> {
             ?, ?, ?, ?, ?,
             ?, ?, ?, ?, ?,
             ?, ?, ?, ?, ?,
-            ?, ?, ?, ?
+            ?, ?, ?, ?, ?
           )
           """.formatted(tableName);
     }
 
-    @Override void addBatch(PreparedStatement ps, ProyectosLeyMetadata.ProyectoLeyMetadata pl)
-        throws SQLException, IOException {
-      ps.setString(1, pl.id());
-      ps.setString(2, pl.periodo().texto());
-      ps.setInt(3, pl.numero());
-      if (pl.numeroPeriodo().isPresent()) ps.setString(4, pl.numeroPeriodo().get());
-      else ps.setNull(4, JDBCType.VARCHAR.ordinal());
-      if (pl.legislatura().isPresent()) ps.setString(5, pl.legislatura().get());
-      else ps.setNull(5, JDBCType.VARCHAR.ordinal());
-      ps.setString(6, pl.fechaPresentacion().format(DateTimeFormatter.ofPattern(YYYY_MM_DD)));
-      if (pl.proponente().isPresent()) ps.setString(7, pl.proponente().get());
-      else ps.setNull(7, JDBCType.VARCHAR.ordinal());
-      if (pl.grupoParlamentario().isPresent()) ps.setString(8, pl.grupoParlamentario().get());
-      else ps.setNull(8, JDBCType.VARCHAR.ordinal());
-      ps.setString(9, pl.estadoActual());
-      ps.setString(10, pl.titulo());
-      if (pl.sumilla().isPresent()) ps.setString(11, pl.sumilla().get());
-      else ps.setNull(11, JDBCType.VARCHAR.ordinal());
-      if (pl.comisionActual().isPresent()) ps.setString(12, pl.comisionActual().get());
-      else ps.setNull(12, JDBCType.VARCHAR.ordinal());
-      if (pl.urlExpediente().isPresent()) ps.setString(13, pl.urlExpediente().get());
-      else ps.setNull(13, JDBCType.VARCHAR.ordinal());
-      if (!pl.firmantes().isEmpty()) ps.setString(14,
-          mapper.writeValueAsString(pl.firmantes().stream()
+    @Override String upsertStatement() {
+      return prepareStatement() + """
+          on conflict(id) do update set
+            periodo = excluded.periodo,
+            numero = excluded.numero,
+            numero_periodo = excluded.numero_periodo,
+            legislatura = excluded.legislatura,
+            presentacion_fecha = excluded.presentacion_fecha,
+            proponente = excluded.proponente,
+            grupo_parlamentario = excluded.grupo_parlamentario,
+            ultimo_estado = excluded.ultimo_estado,
+            titulo = excluded.titulo,
+            sumilla = excluded.sumilla,
+            ultima_comision = excluded.ultima_comision,
+            expediente_url = excluded.expediente_url,
+            firmantes = excluded.firmantes,
+            autor = excluded.autor,
+            coautores = excluded.coautores,
+            adherentes = excluded.adherentes,
+            comisiones = excluded.comisiones,
+            iniciativas_agrupadas = excluded.iniciativas_agrupadas,
+            hash = excluded.hash
+          """;
+    }
+
+    @Override String deleteStatement() {
+      return "delete from %s where id = ?".formatted(tableName);
+    }
+
+    @Override List<Object[]> rows(ProyectosLeyMetadata.ProyectoLeyMetadata pl) throws IOException {
+      return List.<Object[]>of(new Object[] {
+          pl.id(),
+          pl.periodo().texto(),
+          pl.numero(),
+          pl.numeroPeriodo().orElse(null),
+          pl.legislatura().orElse(null),
+          pl.fechaPresentacion().format(FECHA_PRESENTACION),
+          pl.proponente().orElse(null),
+          pl.grupoParlamentario().orElse(null),
+          pl.estadoActual(),
+          pl.titulo(),
+          pl.sumilla().orElse(null),
+          pl.comisionActual().orElse(null),
+          pl.urlExpediente().orElse(null),
+          pl.firmantes().isEmpty() ? null : mapper.writeValueAsString(pl.firmantes().stream()
               .map(ProyectosLeyMetadata.Congresista::nombreCompleto)
-              .collect(Collectors.toSet())));
-      else ps.setNull(14, JDBCType.VARCHAR.ordinal());
-      if (pl.autor().isPresent()) ps.setString(15, pl.autor().get().nombreCompleto());
-      else ps.setNull(15, JDBCType.VARCHAR.ordinal());
-      if (!pl.coAutores().isEmpty())
-        ps.setString(16,
-          mapper.writeValueAsString(pl.coAutores().stream()
+              .collect(Collectors.toSet())),
+          pl.autor().map(ProyectosLeyMetadata.Congresista::nombreCompleto).orElse(null),
+          pl.coAutores().isEmpty() ? null : mapper.writeValueAsString(pl.coAutores().stream()
               .map(ProyectosLeyMetadata.Congresista::nombreCompleto)
-              .collect(Collectors.toSet())));
-      else ps.setNull(16, JDBCType.VARCHAR.ordinal());
-      if (!pl.adherentes().isEmpty()) ps.setString(17,
-          mapper.writeValueAsString(pl.adherentes().stream()
+              .collect(Collectors.toSet())),
+          pl.adherentes().isEmpty() ? null : mapper.writeValueAsString(pl.adherentes().stream()
               .map(ProyectosLeyMetadata.Congresista::nombreCompleto)
-              .collect(Collectors.toSet())));
-      else ps.setNull(17, JDBCType.VARCHAR.ordinal());
-      if (!pl.comisiones().isEmpty())
-        ps.setString(18, mapper.writeValueAsString(pl.comisiones().stream()
-                .map(ProyectosLeyMetadata.Comision::nombre)
-                .collect(Collectors.toList())));
-      else ps.setNull(18, JDBCType.VARCHAR.ordinal());
-      if (!pl.iniciativasAgrupadas().isEmpty())
-        ps.setString(19, mapper.writeValueAsString(pl.iniciativasAgrupadas()));
-      else ps.setNull(19, JDBCType.VARCHAR.ordinal());
-
-      ps.addBatch();
+              .collect(Collectors.toSet())),
+          pl.comisiones().isEmpty() ? null : mapper.writeValueAsString(pl.comisiones().stream()
+              .map(ProyectosLeyMetadata.Comision::nombre)
+              .collect(Collectors.toList())),
+          pl.iniciativasAgrupadas().isEmpty() ? null
+              : mapper.writeValueAsString(pl.iniciativasAgrupadas()),
+          ContentHash.texto(pl.contentHash())
+      });
     }
   }
 
@@ -214,7 +689,7 @@ public class ProyectosLeyLoadSqlite implements Consumer<ProyectosLeyMetadata> {
 
     @Override String createTableStatement() {
       return """
-          create table %s (
+          create table if not exists %s (
             proyecto_ley_id text,
             fecha text not null,
             detalle text not null,
@@ -225,24 +700,29 @@ public class ProyectosLeyLoadSqlite implements Consumer<ProyectosLeyMetadata> {
           """.formatted(tableName);
     }
 
+    @Override List<String> columns() {
+      return List.of("proyecto_ley_id", "fecha", "detalle", "comision", "estado");
+    }
+
     @Override List<String> createIndexesStatement() {
       return List.of(
+          index("proyecto_ley_id"),
           index("comision")
       );
     }
 
-    @Override void addBatch(PreparedStatement ps, ProyectosLeyMetadata.ProyectoLeyMetadata pl)
-        throws SQLException {
+    @Override List<Object[]> rows(ProyectosLeyMetadata.ProyectoLeyMetadata pl) {
+      var rows = new ArrayList<Object[]>(pl.seguimientos().size());
       for (var s : pl.seguimientos()) {
-        ps.setString(1, pl.id());
-        ps.setString(2, s.fecha().format(DateTimeFormatter.ofPattern("yyyy/MM/dd")));
-        ps.setString(3, s.detalle());
-        if (s.comision().isPresent()) ps.setString(4, s.comision().get());
-        else ps.setNull(4, JDBCType.VARCHAR.ordinal());
-        if (s.estado().isPresent()) ps.setString(5, s.estado().get());
-        else ps.setNull(5, JDBCType.VARCHAR.ordinal());
-        ps.addBatch();
+        rows.add(new Object[] {
+            pl.id(),
+            s.fecha().format(FECHA_SEGUIMIENTO),
+            s.detalle(),
+            s.comision().orElse(null),
+            s.estado().orElse(null)
+        });
       }
+      return rows;
     }
   }
 
@@ -261,7 +741,7 @@ public class ProyectosLeyLoadSqlite implements Consumer<ProyectosLeyMetadata> {
 
     @Override String createTableStatement() {
       return """
-          create table %s (
+          create table if not exists %s (
             proyecto_ley_id text,
             congresista text not null,
             firmante_tipo text not null,
@@ -270,33 +750,28 @@ public class ProyectosLeyLoadSqlite implements Consumer<ProyectosLeyMetadata> {
           """.formatted(tableName);
     }
 
+    @Override List<String> columns() {
+      return List.of("proyecto_ley_id", "congresista", "firmante_tipo");
+    }
+
     @Override List<String> createIndexesStatement() {
       return List.of(
+          index("proyecto_ley_id"),
           index("congresista"),
           index("firmante_tipo")
       );
     }
 
-    @Override void addBatch(PreparedStatement ps, ProyectosLeyMetadata.ProyectoLeyMetadata pl)
-        throws SQLException {
-      if (pl.autor().isPresent()) {
-        ps.setString(1, pl.id());
-        ps.setString(2, pl.autor().get().nombreCompleto());
-        ps.setString(3, "AUTOR");
-        ps.addBatch();
-      }
+    @Override List<Object[]> rows(ProyectosLeyMetadata.ProyectoLeyMetadata pl) {
+      var rows = new ArrayList<Object[]>();
+      pl.autor().ifPresent(a -> rows.add(new Object[] {pl.id(), a.nombreCompleto(), "AUTOR"}));
       for (var f : pl.coAutores()) {
-        ps.setString(1, pl.id());
-        ps.setString(2, f.nombreCompleto());
-        ps.setString(3, "COAUTOR");
-        ps.addBatch();
+        rows.add(new Object[] {pl.id(), f.nombreCompleto(), "COAUTOR"});
       }
       for (var f : pl.adherentes()) {
-        ps.setString(1, pl.id());
-        ps.setString(2, f.nombreCompleto());
-        ps.setString(3, "ADHERENTE");
-        ps.addBatch();
+        rows.add(new Object[] {pl.id(), f.nombreCompleto(), "ADHERENTE"});
       }
+      return rows;
     }
   }
 
@@ -315,7 +790,7 @@ public class ProyectosLeyLoadSqlite implements Consumer<ProyectosLeyMetadata> {
 
     @Override String createTableStatement() {
       return """
-          create table %s (
+          create table if not exists %s (
             proyecto_ley_id text not null,
             iniciativa_agrupada text not null,
             FOREIGN KEY(proyecto_ley_id) REFERENCES proyecto_ley(id),
@@ -324,20 +799,24 @@ public class ProyectosLeyLoadSqlite implements Consumer<ProyectosLeyMetadata> {
           """.formatted(tableName);
     }
 
+    @Override List<String> columns() {
+      return List.of("proyecto_ley_id", "iniciativa_agrupada");
+    }
+
     @Override List<String> createIndexesStatement() {
       return List.of(
+          index("proyecto_ley_id")
       );
     }
 
-    @Override void addBatch(PreparedStatement ps, ProyectosLeyMetadata.ProyectoLeyMetadata pl)
-            throws SQLException {
+    @Override List<Object[]> rows(ProyectosLeyMetadata.ProyectoLeyMetadata pl) {
+      var rows = new ArrayList<Object[]>();
       for (var i : pl.iniciativasAgrupadas()) {
         if (!i.isBlank()) {
-          ps.setString(1, pl.id());
-          ps.setString(2, pl.periodo().periodoId(i));
-          ps.addBatch();
+          rows.add(new Object[] {pl.id(), pl.periodo().periodoId(i)});
         }
       }
+      return rows;
     }
   }
 }
@@ -0,0 +1,59 @@
+package op.congreso.pl.internal;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import op.congreso.pl.ProyectosLey;
+import op.congreso.pl.ProyectosLeyMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public interface ProyectosLeyMetadataExtraction extends Function<ProyectosLey, ProyectosLeyMetadata> {
+
+  Logger LOG = LoggerFactory.getLogger(ProyectosLeyMetadataExtraction.class);
+
+  /** Host al que se dirigen las consultas de expedientes, para acotar la concurrencia. */
+  String host();
+
+  /** Un unico intento de extraccion; los reintentos los maneja {@link HostResilience}. */
+  ProyectosLeyMetadata.ProyectoLeyMetadata fetch(ProyectosLey.ProyectoLey proyectoLey);
+
+  /**
+   * Un unico intento, como {@link #fetch}, en los hilos de {@link FetchExecutor}: el hilo queda
+   * ocupado mientras dura la consulta.
+   */
+  default CompletableFuture<ProyectosLeyMetadata.ProyectoLeyMetadata> fetchAsync(
+      ProyectosLey.ProyectoLey proyectoLey) {
+    return CompletableFuture.supplyAsync(() -> fetch(proyectoLey), FetchExecutor.shared().executor);
+  }
+
+  default CompletableFuture<ProyectosLeyMetadata.ProyectoLeyMetadata> extractAsync(
+      ProyectosLey.ProyectoLey proyectoLey) {
+    var start = System.nanoTime();
+    return HostResilience.of(host()).executeAsync(() -> fetchAsync(proyectoLey))
+        .whenComplete((m, e) -> Metrics.shared().observe("congreso_metadata_seconds",
+            System.nanoTime() - start, "host", host()));
+  }
+
+  default ProyectosLeyMetadata.ProyectoLeyMetadata extract(ProyectosLey.ProyectoLey proyectoLey) {
+    try {
+      return extractAsync(proyectoLey).join();
+    } catch (CompletionException e) {
+      throw new RuntimeException("Error", e.getCause());
+    }
+  }
+
+  @Override default ProyectosLeyMetadata apply(ProyectosLey proyectosLey) {
+    LOG.info("Extracting PLs [{}] metadata", proyectosLey.proyectos().size());
+    var meta = new ProyectosLeyMetadata(proyectosLey.periodo);
+    var timer = Metrics.shared().start("congreso_stage_seconds",
+        "periodo", proyectosLey.periodo.texto(), "etapa", "metadatos");
+    try {
+      meta.addAll(FetchExecutor.shared().fetchAll(host(), proyectosLey.proyectos(), this::extractAsync));
+    } finally {
+      timer.close();
+    }
+    LOG.info("{} PL metadata extracted", meta.proyectos().size());
+    return meta;
+  }
+}
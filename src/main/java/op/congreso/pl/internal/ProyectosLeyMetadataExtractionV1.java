@@ -1,8 +1,5 @@
 package op.congreso.pl.internal;
 
-import io.github.resilience4j.retry.Retry;
-import io.github.resilience4j.retry.RetryConfig;
-import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
@@ -12,9 +9,11 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.slf4j.Logger;
@@ -24,30 +23,20 @@ import op.congreso.pl.ProyectosLey;
 import op.congreso.pl.ProyectosLeyMetadata;
 
 import static java.util.stream.Collectors.toList;
+import static op.congreso.pl.Constants.BASE_URL_V1;
 
-public class ProyectosLeyMetadataExtractionV1
-    implements Function<ProyectosLey, ProyectosLeyMetadata> {
+public class ProyectosLeyMetadataExtractionV1 implements ProyectosLeyMetadataExtraction {
 
   static final Logger LOG = LoggerFactory.getLogger(ProyectosLeyMetadataExtractionV1.class);
 
-  @Override public ProyectosLeyMetadata apply(ProyectosLey proyectosLey) {
-    LOG.info("Extracting PL metadata");
-    var meta = new ProyectosLeyMetadata(proyectosLey.periodo);
-    meta.addAll(proyectosLey.proyectos().stream()
-        .parallel()
-        .map(p ->
-            Retry.decorateFunction(
-                    Retry.of("importar", RetryConfig.custom()
-                        .maxAttempts(3)
-                        .retryExceptions(RuntimeException.class)
-                        .waitDuration(Duration.ofSeconds(10))
-                        .build()),
-                    new ProyectoLeyMetadataExtraction())
-                .apply(p)
-        )
-        .collect(Collectors.toSet()));
-    LOG.info("{} PL metadata extracted", meta.proyectos().size());
-    return meta;
+  @Override public String host() {
+    return FetchExecutor.host(BASE_URL_V1);
+  }
+
+  static final ProyectoLeyMetadataExtraction extraction = new ProyectoLeyMetadataExtraction();
+
+  @Override public ProyectosLeyMetadata.ProyectoLeyMetadata fetch(ProyectosLey.ProyectoLey proyectoLey) {
+    return extraction.apply(proyectoLey);
   }
 
   static class ProyectoLeyMetadataExtraction
@@ -57,103 +46,139 @@ public class ProyectosLeyMetadataExtractionV1
     @Override
     public ProyectosLeyMetadata.ProyectoLeyMetadata apply(ProyectosLey.ProyectoLey pl) {
       try {
-        var doc = Jsoup.connect(pl.url()).get();
-        var body = doc.body();
-        var inputs = body.select("input");
+        var response = HttpCache.shared().getOk(pl.url());
+        return parse(pl, response.body(), response.charset());
+      } catch (Exception e) {
+        LOG.error("Error {}", pl.url());
+        throw new RuntimeException("Error", e);
+      }
+    }
 
-        var codIni = inputs.select("input[name=CodIni]").first();
-        if (codIni == null) {
-          LOG.warn("Error looking up for PL number: {}-{} url: {}", pl.periodo().texto(), pl.numero(), pl.url());
-          return ProyectosLeyMetadata.ProyectoLeyMetadata.from(pl);
-        }
+    /**
+     * Lee inputs y seguimiento en una sola pasada con {@link DominoHtml}. Solo las paginas sin
+     * fila "Seguimiento:" y con "Envío a Comisión:" se parsean ademas con Jsoup.
+     */
+    ProyectosLeyMetadata.ProyectoLeyMetadata parse(ProyectosLey.ProyectoLey pl, byte[] body,
+        Optional<String> charset) {
+      try {
+        var html = DominoHtml.decode(body, charset);
+        var page = DominoHtml.expediente(html);
+        return build(pl, page::input, () -> page.seguimiento()
+            .orElseGet(() -> page.envioComision() ? envioComision(Jsoup.parse(html).body()) : ""));
+      } catch (Exception e) {
+        throw new RuntimeException("Error parsing " + pl.url(), e);
+      }
+    }
 
-        var seg =
+    /** Version sobre el DOM de Jsoup, equivalente a {@link #parse(ProyectosLey.ProyectoLey, byte[], Optional)}. */
+    ProyectosLeyMetadata.ProyectoLeyMetadata parse(ProyectosLey.ProyectoLey pl, Document doc) {
+      try {
+        var body = doc.body();
+        var inputs = body.select("input");
+        return build(pl, name -> extractInputValue(inputs, name), () ->
             body.select("tr").stream().filter(e -> e.text().startsWith("Seguimiento:"))
                 .findAny()
                 .map(Element::text)
-                .orElse(body.select("td")
-                    .stream()
-                    .filter(e -> e.select("b").text().equals("Envío a Comisión:"))
-                    .map(e -> e.select("font[size=3]").text())
-                    .findAny()
-                    .orElse(""));
-
-        var seguimientos = new LinkedHashSet<ProyectosLeyMetadata.Seguimiento>();
-        if (!seg.isBlank()) {
-          var matcher = datePattern.matcher(seg);
-          var textos = Arrays.stream(seg.split(datePattern.pattern()))
-              .map(String::trim)
-              .filter(s -> !s.isBlank())
-              .collect(toList());
-          for (String texto : textos) {
-            if (!texto.equals("Seguimiento:")) {
-              if (matcher.find()) {
-                var fecha = matcher.group();
-                seguimientos.add(new ProyectosLeyMetadata.Seguimiento(
-                    LocalDate.parse(fecha.trim(), DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                    texto,
-                    Optional.empty(),
-                    Optional.empty()
-                ));
-              }
+                .orElse(envioComision(body)));
+      } catch (Exception e) {
+        throw new RuntimeException("Error parsing " + pl.url(), e);
+      }
+    }
+
+    static String envioComision(Element body) {
+      return body.select("td")
+          .stream()
+          .filter(e -> e.select("b").text().equals("Envío a Comisión:"))
+          .map(e -> e.select("font[size=3]").text())
+          .findAny()
+          .orElse("");
+    }
+
+    ProyectosLeyMetadata.ProyectoLeyMetadata build(ProyectosLey.ProyectoLey pl,
+        Function<String, Optional<String>> input, Supplier<String> seguimiento) {
+      var codIni = input.apply("CodIni");
+      if (codIni.isEmpty()) {
+        LOG.warn("Error looking up for PL number: {}-{} url: {}", pl.periodo().texto(), pl.numero(), pl.url());
+        Metrics.shared().increment("congreso_metadata_fallbacks_total",
+            "periodo", pl.periodo().texto(), "motivo", "sin_codigo");
+        return ProyectosLeyMetadata.ProyectoLeyMetadata.from(pl);
+      }
+
+      var seg = seguimiento.get();
+
+      var seguimientos = new LinkedHashSet<ProyectosLeyMetadata.Seguimiento>();
+      if (!seg.isBlank()) {
+        var matcher = datePattern.matcher(seg);
+        var textos = Arrays.stream(seg.split(datePattern.pattern()))
+            .map(String::trim)
+            .filter(s -> !s.isBlank())
+            .collect(toList());
+        for (String texto : textos) {
+          if (!texto.equals("Seguimiento:")) {
+            if (matcher.find()) {
+              var fecha = matcher.group();
+              seguimientos.add(new ProyectosLeyMetadata.Seguimiento(
+                  LocalDate.parse(fecha.trim(), DateTimeFormatter.ofPattern("dd/MM/yyyy")),
+                  texto,
+                  Optional.empty(),
+                  Optional.empty()
+              ));
             }
           }
         }
+      }
 
-        var prefix = "En comisión";
-        var comisiones = new LinkedHashSet<ProyectosLeyMetadata.Comision>();
-        for (var s : seguimientos) {
-          if (s.detalle().startsWith(prefix)) {
-            final var comision = s.detalle().substring(prefix.length() + 1).strip();
-            if (comision.contains("-")) {
-              var corregido = comision.substring(0, comision.indexOf("-"));
-              comisiones.add(new ProyectosLeyMetadata.Comision(-1, corregido));
-            } else {
-              comisiones.add(new ProyectosLeyMetadata.Comision(-1, comision));
-            }
+      var interner = Interner.shared();
+      var prefix = "En comisión";
+      var comisiones = new LinkedHashSet<ProyectosLeyMetadata.Comision>();
+      for (var s : seguimientos) {
+        if (s.detalle().startsWith(prefix)) {
+          final var comision = s.detalle().substring(prefix.length() + 1).strip();
+          if (comision.contains("-")) {
+            var corregido = comision.substring(0, comision.indexOf("-"));
+            comisiones.add(interner.comision(new ProyectosLeyMetadata.Comision(-1, corregido)));
+          } else {
+            comisiones.add(interner.comision(new ProyectosLeyMetadata.Comision(-1, comision)));
           }
         }
-
-        var autores = autores(extractInputValue(inputs, "NomCongre"));
-        var adherentes = autores(extractInputValue(inputs, "Adherentes"));
-
-        var autor = autores.stream().findFirst();
-        if (!autores.isEmpty()) autores.remove(0);
-        var desGrupParla = extractInputValue(inputs, "DesGrupParla");
-        var desGrupPol = extractInputValue(inputs, "DesGrupPol");
-        return new ProyectosLeyMetadata.ProyectoLeyMetadata(
-            pl.periodo(),
-            Integer.parseInt(codIni.attr("value")),
-            extractInputValue(inputs, "CodIni_web"),
-            extractInputValue(inputs, "TitIni").orElse(""),
-            extractInputValue(inputs, "CodUltEsta").orElse(""),
-            LocalDate.parse(extractInputValue(inputs, "FecPres").get(),
-                DateTimeFormatter.ofPattern("MM/dd/yyyy")),
-            extractInputValue(inputs, "DesLegis"),
-            extractInputValue(inputs, "DesPropo"),
-            extractInputValue(inputs, "SumIni"),
-            desGrupParla.isPresent() ? (desGrupParla.get().isEmpty() ? desGrupPol : desGrupParla)
-                : desGrupPol,
-
-            autor,
-            new HashSet<>(autores),
-            new HashSet<>(adherentes),
-
-            seguimientos,
-            comisiones,
-            extractInputValue(inputs, "NombreDeLaComision"),
-
-            extractInputValue(inputs, "NombreDelEnlace"),
-            extractInputValue(inputs, "CodIniSecu")
-                    .filter(s -> !s.isBlank())
-                    .map(s -> (s.split(",")))
-                    .map(a -> Arrays.stream(a).map(String::trim).collect(Collectors.toSet()))
-                    .orElse(new HashSet<>())
-        );
-      } catch (Exception e) {
-        LOG.error("Error {}", pl.url());
-        throw new RuntimeException("Error", e);
       }
+
+      var autores = autores(input.apply("NomCongre"));
+      var adherentes = autores(input.apply("Adherentes"));
+
+      var autor = autores.stream().findFirst();
+      if (!autores.isEmpty()) autores.remove(0);
+      var desGrupParla = interner.string(input.apply("DesGrupParla"));
+      var desGrupPol = interner.string(input.apply("DesGrupPol"));
+      return new ProyectosLeyMetadata.ProyectoLeyMetadata(
+          pl.periodo(),
+          Integer.parseInt(codIni.get()),
+          input.apply("CodIni_web"),
+          input.apply("TitIni").orElse(""),
+          interner.string(input.apply("CodUltEsta").orElse("")),
+          LocalDate.parse(input.apply("FecPres").get(),
+              DateTimeFormatter.ofPattern("MM/dd/yyyy")),
+          interner.string(input.apply("DesLegis")),
+          interner.string(input.apply("DesPropo")),
+          input.apply("SumIni"),
+          desGrupParla.isPresent() ? (desGrupParla.get().isEmpty() ? desGrupPol : desGrupParla)
+              : desGrupPol,
+
+          autor,
+          new HashSet<>(autores),
+          new HashSet<>(adherentes),
+
+          seguimientos,
+          comisiones,
+          interner.string(input.apply("NombreDeLaComision")),
+
+          input.apply("NombreDelEnlace"),
+          input.apply("CodIniSecu")
+                  .filter(s -> !s.isBlank())
+                  .map(s -> (s.split(",")))
+                  .map(a -> Arrays.stream(a).map(String::trim).collect(Collectors.toSet()))
+                  .orElse(new HashSet<>())
+      );
     }
 
     private List<ProyectosLeyMetadata.Congresista> autores(Optional<String> nomCongre) {
@@ -161,10 +186,10 @@ public class ProyectosLeyMetadataExtractionV1
       if (nomCongre.isPresent()) {
         for (var nombres : nomCongre.get().split(",")) {
           if (!nombres.isBlank()) {
-            c.add(new ProyectosLeyMetadata.Congresista(
+            c.add(Interner.shared().congresista(new ProyectosLeyMetadata.Congresista(
                 nombres.replace("  ", ", "),
                 Optional.empty(), Optional.empty(), Optional.empty()
-            ));
+            )));
           }
         }
       }
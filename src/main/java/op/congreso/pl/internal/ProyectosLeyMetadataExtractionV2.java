@@ -3,19 +3,11 @@ package op.congreso.pl.internal;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
-import io.github.resilience4j.retry.Retry;
-import io.github.resilience4j.retry.RetryConfig;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import op.congreso.pl.Periodo;
@@ -24,32 +16,23 @@ import op.congreso.pl.ProyectosLeyMetadata;
 
 import static op.congreso.pl.Constants.BASE_URL_V2;
 
-public class ProyectosLeyMetadataExtractionV2 implements Function<ProyectosLey, ProyectosLeyMetadata> {
+public class ProyectosLeyMetadataExtractionV2 implements ProyectosLeyMetadataExtraction {
 
   static final Logger LOG = LoggerFactory.getLogger(ProyectosLeyMetadataExtractionV2.class);
 
-  static HttpClient httpClient = HttpClient.newBuilder().build();
   static ObjectMapper mapper = new ObjectMapper();
 
-  @Override public ProyectosLeyMetadata apply(ProyectosLey proyectosLey) {
-    LOG.info("Extracting PLs [{}] metadata", proyectosLey.proyectos().size());
-    var meta = new ProyectosLeyMetadata(proyectosLey.periodo);
-    meta.addAll(proyectosLey.proyectos().stream()
-            .parallel()
-            .map(p -> Retry.decorateFunction(
-                            Retry.of("importar", RetryConfig.custom()
-                                    .maxAttempts(3)
-                                    .retryExceptions(RuntimeException.class)
-                                    .waitDuration(Duration.ofSeconds(10))
-                                    .build()),
-                            new ProyectoLeyMetadataExtraction())
-                    .apply(p)
-            )
-        .collect(Collectors.toSet()));
-    LOG.info("{} PL metadata extracted", meta.proyectos().size());
-    return meta;
+  @Override public String host() {
+    return FetchExecutor.host(BASE_URL_V2);
   }
 
+  static final ProyectoLeyMetadataExtraction extraction = new ProyectoLeyMetadataExtraction();
+
+  @Override public ProyectosLeyMetadata.ProyectoLeyMetadata fetch(ProyectosLey.ProyectoLey proyectoLey) {
+    return extraction.apply(proyectoLey);
+  }
+
+  /** Bloquea un hilo de {@link FetchExecutor} por expediente, con el cliente de {@link HttpCache}. */
   static class ProyectoLeyMetadataExtraction
       implements Function<ProyectosLey.ProyectoLey, ProyectosLeyMetadata.ProyectoLeyMetadata> {
 
@@ -59,19 +42,23 @@ public class ProyectosLeyMetadataExtractionV2 implements Function<ProyectosLey,
       try {
         var url = BASE_URL_V2 + "/spley-portal-service/expediente/%s/%s"
             .formatted(pl.periodo().desde(), pl.numero());
-        var response = httpClient.send(
-            HttpRequest.newBuilder()
-                .GET()
-                .uri(URI.create(url))
-                .header("User-Agent", "Mozilla/5.0 Firefox/26.0")
-                .build(),
-            HttpResponse.BodyHandlers.ofString());
+        var response = HttpCache.shared().get(url);
         if (response.statusCode() == 404) {
           LOG.warn("PL {}/{} not found. URL: {}", pl.periodo().texto(), pl.numero(), url);
+          Metrics.shared().increment("congreso_metadata_fallbacks_total",
+              "periodo", pl.periodo().texto(), "motivo", "no_encontrado");
           return ProyectosLeyMetadata.ProyectoLeyMetadata.from(pl);
         }
-        if (response.statusCode() != 200) throw new IllegalStateException("Response fail: " + response.statusCode() + " :: " + response.body());
-        var responseJson = mapper.readTree(response.body());
+        if (response.statusCode() != 200) throw new IllegalStateException("Response fail: " + response.statusCode() + " :: " + response.text());
+        return parse(pl, response.body());
+      } catch (Exception e) {
+        throw new RuntimeException("Error", e);
+      }
+    }
+
+    ProyectosLeyMetadata.ProyectoLeyMetadata parse(ProyectosLey.ProyectoLey pl, byte[] body) {
+      try {
+        var responseJson = mapper.readTree(body);
         if (responseJson.get("code").intValue() != 200 ||
             !responseJson.get("status").textValue().equals("success")) {
           throw new IllegalStateException("Response value fail");
@@ -90,23 +77,25 @@ public class ProyectosLeyMetadataExtractionV2 implements Function<ProyectosLey,
 //            .map(Optional::get)
 //            .collect(Collectors.toSet());
 
+        var interner = Interner.shared();
         var iniciativasAcumuladas = new LinkedHashSet<String>();
         for (var i : data.get("acumulados")) {
           String proyectoLey = i.get("proyectoLey").textValue();
           iniciativasAcumuladas.add(proyectoLey.split("/")[0]);
         }
+        // pleyNum es el numero de la lista y de la URL; pleyId es un id interno del portal
         return new ProyectosLeyMetadata.ProyectoLeyMetadata(
             pl.periodo(),
-            data.get("general").get("pleyId").asInt(),
+            data.get("general").get("pleyNum").asInt(),
             Optional.of(data.get("general").get("proyectoLey").textValue()),
             data.get("general").get("titulo").textValue(),
-            data.get("general").get("desEstado").textValue(),
+            interner.string(data.get("general").get("desEstado").textValue()),
             LocalDate.parse(data.get("general").get("fecPresentacion").asText(),
                 DateTimeFormatter.ofPattern("yyyy-MM-dd")),
-            Optional.ofNullable(data.get("general").get("desLegis")).map(JsonNode::textValue),
-            Optional.ofNullable(data.get("general").get("desProponente")).map(JsonNode::textValue),
+            interner.string(Optional.ofNullable(data.get("general").get("desLegis")).map(JsonNode::textValue)),
+            interner.string(Optional.ofNullable(data.get("general").get("desProponente")).map(JsonNode::textValue)),
             Optional.ofNullable(data.get("general").get("sumilla")).map(JsonNode::textValue),
-            Optional.ofNullable(data.get("general").get("desGpar")).map(JsonNode::textValue),
+            interner.string(Optional.ofNullable(data.get("general").get("desGpar")).map(JsonNode::textValue)),
 
             firmantes.get(1).stream().findAny(),
             firmantes.get(2),
@@ -127,19 +116,21 @@ public class ProyectosLeyMetadataExtractionV2 implements Function<ProyectosLey,
     private Set<ProyectosLeyMetadata.Comision> comisiones(ArrayNode comisiones) {
       final var list = new HashSet<ProyectosLeyMetadata.Comision>(comisiones.size());
       for (final var comision : comisiones) {
-        list.add(new ProyectosLeyMetadata.Comision(comision.get("comisionId").asInt(), comision.get("nombre").asText()));
+        list.add(Interner.shared().comision(new ProyectosLeyMetadata.Comision(
+            comision.get("comisionId").asInt(), comision.get("nombre").asText())));
       }
       return list;
     }
 
     private Set<ProyectosLeyMetadata.Seguimiento> seguimientos(ArrayNode seguimientos) {
+      var interner = Interner.shared();
       var s = new LinkedHashSet<ProyectosLeyMetadata.Seguimiento>();
       for (var item : seguimientos) {
         s.add(new ProyectosLeyMetadata.Seguimiento(
             LocalDate.parse(item.get("fecha").asText(), DateTimeFormatter.ofPattern("yyyy-MM-dd'T'kk:mm:ss.SSSZ")),
             item.get("detalle").textValue(),
-            Optional.ofNullable(item.get("desEstado")).map(JsonNode::textValue),
-            Optional.ofNullable(item.get("desComisiones")).map(JsonNode::textValue)
+            interner.string(Optional.ofNullable(item.get("desEstado")).map(JsonNode::textValue)),
+            interner.string(Optional.ofNullable(item.get("desComisiones")).map(JsonNode::textValue))
         ));
       }
       return s;
@@ -154,14 +145,14 @@ public class ProyectosLeyMetadataExtractionV2 implements Function<ProyectosLey,
       for (var item : firmantes) {
         var i = item.get("tipoFirmanteId").intValue();
         map.computeIfPresent(i, (tipo, congresistas) -> {
-          congresistas.add(
+          congresistas.add(Interner.shared().congresista(
               new ProyectosLeyMetadata.Congresista(
                   item.get("nombre").textValue(),
                   Optional.of(item.get("dni")).map(JsonNode::textValue),
                   Optional.of(item.get("sexo")).map(JsonNode::textValue),
                   Optional.of(item.get("pagWeb")).map(JsonNode::textValue)
               )
-          );
+          ));
           return congresistas;
         });
       }
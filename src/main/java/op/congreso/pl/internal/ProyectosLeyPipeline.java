@@ -0,0 +1,290 @@
+package op.congreso.pl.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import op.congreso.pl.Periodo;
+import op.congreso.pl.ProyectosLey;
+import op.congreso.pl.ProyectosLeyMetadata;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Extraccion de lista, metadatos y carga en flujo: cada pagina de la lista alimenta las consultas de
+ * expedientes apenas llega, y cada {@code ProyectoLeyMetadata} terminado pasa por una cola acotada a
+ * un unico hilo que lo entrega al sink. Si el sink se atrasa, la cola llena bloquea a los hilos de
+ * consulta, que retienen sus permisos en {@link FetchExecutor} y frenan a su vez a la lista.
+ */
+public class ProyectosLeyPipeline {
+
+  static final Logger LOG = LoggerFactory.getLogger(ProyectosLeyPipeline.class);
+
+  static final int QUEUE_CAPACITY = Integer.getInteger("congreso.pipeline.queue", 256);
+  // fraccion de los proyectos de la lista que puede terminar sin metadatos antes de dar el
+  // periodo por fallido (p. ej. con el portal caido), y cuantos como minimo: unos pocos expedientes
+  // que fallan siempre no deben impedir publicar el resto
+  static final double MAX_FALLIDOS = Double.parseDouble(
+      System.getProperty("congreso.pipeline.maxFallidos", "0.05"));
+  static final int MIN_FALLIDOS = Integer.getInteger("congreso.pipeline.minFallidos", 10);
+
+  final ProyectosLeyExtraction extraction;
+  final ProyectosLeyMetadataExtraction metadataExtraction;
+  final Function<ProyectosLey.ProyectoLey, Optional<ProyectosLeyMetadata.ProyectoLeyMetadata>> reutilizable;
+  final ProyectosLeyJournal journal;
+  final Function<ProyectosLey.ProyectoLey, Optional<ProyectosLeyMetadata.ProyectoLeyMetadata>> anterior;
+  // numeros de los proyectos entregados sin metadatos nuevos en la ultima ejecucion
+  final Set<Integer> sinMetadatos = ConcurrentHashMap.newKeySet();
+
+  public ProyectosLeyPipeline(ProyectosLeyExtraction extraction,
+      ProyectosLeyMetadataExtraction metadataExtraction) {
+    this(extraction, metadataExtraction, pl -> Optional.empty());
+  }
+
+  public ProyectosLeyPipeline(ProyectosLeyExtraction extraction,
+      ProyectosLeyMetadataExtraction metadataExtraction,
+      Function<ProyectosLey.ProyectoLey, Optional<ProyectosLeyMetadata.ProyectoLeyMetadata>> reutilizable) {
+    this(extraction, metadataExtraction, reutilizable, null);
+  }
+
+  /**
+   * Con {@code journal} cada expediente extraido queda registrado apenas termina, y los ya
+   * registrados en una ejecucion anterior que no termino se reutilizan.
+   */
+  public ProyectosLeyPipeline(ProyectosLeyExtraction extraction,
+      ProyectosLeyMetadataExtraction metadataExtraction,
+      Function<ProyectosLey.ProyectoLey, Optional<ProyectosLeyMetadata.ProyectoLeyMetadata>> reutilizable,
+      ProyectosLeyJournal journal) {
+    this(extraction, metadataExtraction, reutilizable, journal, pl -> Optional.empty());
+  }
+
+  /**
+   * Con {@code anterior}, un expediente que sigue fallando al final se reemplaza por su version de
+   * la extraccion anterior, si la hay, en lugar de solo los datos de la lista.
+   */
+  public ProyectosLeyPipeline(ProyectosLeyExtraction extraction,
+      ProyectosLeyMetadataExtraction metadataExtraction,
+      Function<ProyectosLey.ProyectoLey, Optional<ProyectosLeyMetadata.ProyectoLeyMetadata>> reutilizable,
+      ProyectosLeyJournal journal,
+      Function<ProyectosLey.ProyectoLey, Optional<ProyectosLeyMetadata.ProyectoLeyMetadata>> anterior) {
+    this.extraction = extraction;
+    this.metadataExtraction = metadataExtraction;
+    this.reutilizable = reutilizable;
+    this.journal = journal;
+    this.anterior = anterior;
+  }
+
+  /**
+   * Ejecuta el flujo completo. {@code sink} se invoca siempre desde un mismo hilo. Un expediente
+   * que falla tras sus reintentos no detiene el periodo: se vuelve a intentar al final y, si sigue
+   * fallando, se entrega su version anterior o, sin ella, los datos de la lista (como con un 404),
+   * (ver {@link #sinMetadatos()}). Si fallan mas de {@code congreso.pipeline.maxFallidos}
+   * (fraccion) de los proyectos de la lista, y mas de {@code congreso.pipeline.minFallidos}, el
+   * periodo falla y no se publica nada.
+   *
+   * @return la lista de proyectos de ley extraida
+   */
+  public ProyectosLey run(Periodo periodo, Consumer<ProyectosLeyMetadata.ProyectoLeyMetadata> sink) {
+    var start = System.nanoTime();
+    // la lista entrega paginas de hasta 1000 filas; la cola de pendientes la desacopla de los
+    // permisos de consulta para que la siguiente pagina se pida mientras se consulta la anterior
+    BlockingQueue<Optional<ProyectosLey.ProyectoLey>> pendientes =
+        new ArrayBlockingQueue<>(Math.max(QUEUE_CAPACITY, 1024));
+    BlockingQueue<Optional<ProyectosLeyMetadata.ProyectoLeyMetadata>> terminados =
+        new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    var error = new AtomicReference<Throwable>();
+    var futures = new ArrayList<Future<?>>();
+    var reutilizados = new AtomicInteger();
+    var reanudados = new AtomicInteger();
+    var fallidos = new ConcurrentLinkedQueue<ProyectosLey.ProyectoLey>();
+    var respaldos = new AtomicInteger();
+    var total = new AtomicInteger();
+    sinMetadatos.clear();
+    var cargados = new AtomicInteger();
+    var carga = new AtomicLong();
+    var metrics = Metrics.shared();
+
+    // tras cerrar el flujo las consultas en curso descartan su resultado y liberan su permiso
+    var cerrado = new AtomicBoolean();
+    Consumer<ProyectosLeyMetadata.ProyectoLeyMetadata> entregar = m -> {
+      try {
+        while (!terminados.offer(Optional.of(m), 1, TimeUnit.SECONDS)) {
+          if (cerrado.get()) throw new CancellationException();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted", e);
+      }
+    };
+
+    var host = metadataExtraction.host();
+    var dispatcher = new Thread(() -> {
+      var timer = metrics.start("congreso_stage_seconds", "periodo", periodo.texto(),
+          "etapa", "metadatos");
+      try {
+        for (var pl = pendientes.take(); pl.isPresent(); pl = pendientes.take()) {
+          var p = pl.get();
+          total.incrementAndGet();
+          var registrado = journal != null ? journal.completado(p) : Optional.<ProyectosLeyMetadata.ProyectoLeyMetadata>empty();
+          var anterior = registrado.isPresent() ? registrado : reutilizable.apply(p);
+          if (anterior.isPresent()) {
+            (registrado.isPresent() ? reanudados : reutilizados).incrementAndGet();
+            terminados.put(anterior);
+          } else {
+            // el permiso del host se retiene hasta entregar el resultado al loader
+            futures.add(FetchExecutor.shared().submitAsync(host, periodo.prioridad(), () ->
+                metadataExtraction.extractAsync(p).handle((m, e) -> {
+                  if (e != null) {
+                    if (journal != null) journal.fallido(p, e);
+                    fallidos.add(p);
+                    return null;
+                  }
+                  if (journal != null) journal.completado(p, m);
+                  entregar.accept(m);
+                  return null;
+                })));
+          }
+        }
+        for (var future : futures) future.get();
+        if (!fallidos.isEmpty()) {
+          LOG.warn("{} PLs de {} fallaron, se reintentan", fallidos.size(), periodo.texto());
+          var reintentos = new ArrayList<Future<?>>();
+          for (var p : fallidos) {
+            reintentos.add(FetchExecutor.shared().submitAsync(host, periodo.prioridad(), () ->
+                metadataExtraction.extractAsync(p).handle((m, e) -> {
+                  if (e != null) {
+                    var previo = anterior.apply(p);
+                    LOG.error("PL {}/{} sin metadatos, se usan los {}: {}", periodo.texto(),
+                        p.numero(), previo.isPresent() ? "anteriores" : "de la lista", e.toString());
+                    if (journal != null) journal.fallido(p, e);
+                    metrics.increment("congreso_metadata_fallbacks_total",
+                        "periodo", periodo.texto(), "motivo", "error");
+                    respaldos.incrementAndGet();
+                    sinMetadatos.add(p.numero());
+                    entregar.accept(previo.orElseGet(() ->
+                        ProyectosLeyMetadata.ProyectoLeyMetadata.from(p)));
+                  } else {
+                    if (journal != null) journal.completado(p, m);
+                    entregar.accept(m);
+                  }
+                  return null;
+                })));
+          }
+          for (var future : reintentos) future.get();
+          if (respaldos.get() > MAX_FALLIDOS * total.get() && respaldos.get() > MIN_FALLIDOS) {
+            throw new IllegalStateException("%d de %d PLs de %s sin metadatos, mas de %.0f%%"
+                .formatted(respaldos.get(), total.get(), periodo.texto(), MAX_FALLIDOS * 100));
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      } catch (ExecutionException e) {
+        error.compareAndSet(null, e.getCause());
+      } catch (Throwable e) {
+        error.compareAndSet(null, e);
+      } finally {
+        timer.close();
+      }
+    }, "pipeline-fetch-" + periodo.texto());
+
+    var loader = new Thread(() -> {
+      try {
+        for (var m = terminados.take(); m.isPresent(); m = terminados.take()) {
+          // tras un error se sigue vaciando la cola para no bloquear a las consultas
+          if (error.get() != null) continue;
+          var inicio = System.nanoTime();
+          try {
+            sink.accept(m.get());
+            cargados.incrementAndGet();
+            carga.addAndGet(System.nanoTime() - inicio);
+          } catch (Throwable e) {
+            error.compareAndSet(null, e);
+          }
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }, "pipeline-load-" + periodo.texto());
+
+    dispatcher.start();
+    loader.start();
+    var vistos = new HashSet<ProyectosLey.ProyectoLey>();
+    try {
+      var lista = extraction.apply(periodo, pagina -> {
+        for (var pl : pagina) {
+          if (!vistos.add(pl)) continue;
+          try {
+            pendiente(pendientes, Optional.of(pl), error);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted", e);
+          }
+        }
+      });
+      // con la cola llena y las consultas ya caidas, put() no volveria nunca
+      pendiente(pendientes, Optional.empty(), error);
+      dispatcher.join();
+      if (error.get() == null) {
+        terminados.put(Optional.empty());
+        loader.join();
+      }
+      if (error.get() != null) throw new RuntimeException("Error", error.get());
+      var texto = periodo.texto();
+      metrics.observe("congreso_stage_seconds", carga.get(), "periodo", texto, "etapa", "carga");
+      metrics.observe("congreso_stage_seconds", System.nanoTime() - start,
+          "periodo", texto, "etapa", "pipeline");
+      metrics.add("congreso_pls_total", futures.size(), "periodo", texto, "origen", "extraido");
+      metrics.add("congreso_pls_total", reutilizados.get(), "periodo", texto, "origen", "reutilizado");
+      metrics.add("congreso_pls_total", reanudados.get(), "periodo", texto, "origen", "reanudado");
+      LOG.info("{} PLs: {} extracted ({} failed), {} reused, {} resumed, {} loaded in {} s",
+          lista.proyectos().size(), futures.size(), respaldos.get(), reutilizados.get(),
+          reanudados.get(), cargados.get(),
+          "%.1f".formatted((System.nanoTime() - start) / 1e9));
+      return lista;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Interrupted", e);
+    } finally {
+      cerrado.set(true);
+      dispatcher.interrupt();
+      loader.interrupt();
+      try {
+        dispatcher.join();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      futures.forEach(f -> f.cancel(true));
+    }
+  }
+
+  /**
+   * Numeros de los proyectos que en la ultima ejecucion fallaron hasta el final y se entregaron con
+   * su version anterior o con los datos de la lista. Se guardan para que la siguiente importacion
+   * incremental los vuelva a consultar aunque su entrada de la lista ya no cambie.
+   */
+  public Set<Integer> sinMetadatos() {
+    return Set.copyOf(sinMetadatos);
+  }
+
+  /** Encola para las consultas, esperando lugar solo mientras estas no hayan fallado. */
+  static <T> void pendiente(BlockingQueue<T> pendientes, T valor, AtomicReference<Throwable> error)
+      throws InterruptedException {
+    while (!pendientes.offer(valor, 1, TimeUnit.SECONDS)) {
+      if (error.get() != null) throw new RuntimeException("Error", error.get());
+    }
+  }
+}
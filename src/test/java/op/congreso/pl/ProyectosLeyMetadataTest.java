@@ -0,0 +1,113 @@
+package op.congreso.pl;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import op.congreso.pl.ProyectosLeyMetadata.Comision;
+import op.congreso.pl.ProyectosLeyMetadata.Congresista;
+import op.congreso.pl.ProyectosLeyMetadata.JsonIndex;
+import op.congreso.pl.ProyectosLeyMetadata.JsonWriter;
+import op.congreso.pl.ProyectosLeyMetadata.ProyectoLeyMetadata;
+import op.congreso.pl.ProyectosLeyMetadata.Seguimiento;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Lo que escribe {@link JsonWriter}, en JSON o en Smile, se lee igual: mismos registros, con sus
+ * Optional y conjuntos vacios, y el mismo hash de contenido.
+ */
+class ProyectosLeyMetadataTest {
+
+  @TempDir Path dir;
+
+  static final Congresista AUTOR = new Congresista("PÉREZ GÓMEZ, ANA", Optional.of("40001234"),
+      Optional.of("F"), Optional.of("https://www.congreso.gob.pe/congresistas2021/1"));
+
+  static List<ProyectoLeyMetadata> proyectos() {
+    var vacio = ProyectoLeyMetadata.from(new ProyectosLey.ProyectoLey(Periodo._2021_2026, 1,
+        Optional.empty(), LocalDate.of(2021, 8, 10), "PRESENTADO", "LEY VACIA", null));
+    var completo = new ProyectoLeyMetadata(
+        Periodo._2021_2026,
+        2,
+        Optional.of("00002/2021-CR"),
+        "LEY QUE \"CITA\" Y USA ñ, é Y \\",
+        "EN COMISIÓN",
+        LocalDate.of(2021, 8, 11),
+        Optional.of("Primera Legislatura Ordinaria 2021"),
+        Optional.of("Congreso"),
+        Optional.of(""),
+        Optional.of("GRUPO"),
+        Optional.of(AUTOR),
+        new LinkedHashSet<>(List.of(AUTOR,
+            new Congresista("RUIZ, LUIS", Optional.empty(), Optional.empty(), Optional.empty()))),
+        Set.of(new Congresista("SOLO NOMBRE", Optional.empty(), Optional.of("M"), Optional.empty())),
+        new LinkedHashSet<>(List.of(
+            new Seguimiento(LocalDate.of(2021, 8, 12), "Decretado a comisión",
+                Optional.of("EN COMISIÓN"), Optional.of("Economía")),
+            new Seguimiento(LocalDate.of(2021, 8, 13), "Sin estado ni comisión",
+                Optional.empty(), Optional.empty()))),
+        new LinkedHashSet<>(List.of(new Comision(1, "Economía"), new Comision(2, "Presupuesto"))),
+        Optional.of("Presupuesto"),
+        Optional.empty(),
+        new LinkedHashSet<>(List.of("00001", "00003")));
+    var sinConjuntos = new ProyectoLeyMetadata(Periodo._2016_2021, 3, Optional.of("00003/2016-CR"),
+        "LEY", "PUBLICADO", LocalDate.of(2017, 1, 2), Optional.empty(), Optional.empty(),
+        Optional.empty(), Optional.empty(), Optional.empty(), Set.of(), Set.of(), Set.of(), Set.of(),
+        Optional.empty(), Optional.of("url"), Set.of());
+    return List.of(vacio, completo, sinConjuntos);
+  }
+
+  @Test void json() throws IOException {
+    var path = dir.resolve("proyectos.json");
+    try (var writer = JsonWriter.open(path)) {
+      for (var p : proyectos()) writer.write(p);
+      writer.commit();
+    }
+    var leidos = new ArrayList<ProyectoLeyMetadata>();
+    ProyectosLeyMetadata.readJson(path, leidos::add);
+    assertRoundTrip(leidos);
+    try (var index = JsonIndex.open(path)) {
+      for (var p : proyectos()) assertEquals(p, index.get(p.numero()));
+    }
+  }
+
+  @Test void snapshot() throws IOException {
+    var path = dir.resolve("proyectos.smile");
+    try (var writer = JsonWriter.snapshot(path)) {
+      for (var p : proyectos()) writer.write(p);
+      writer.commit();
+    }
+    var leidos = new ArrayList<ProyectoLeyMetadata>();
+    ProyectosLeyMetadata.readSnapshot(path, leidos::add);
+    assertRoundTrip(leidos);
+  }
+
+  @Test void vacio() throws IOException {
+    var json = dir.resolve("vacio.json");
+    var smile = dir.resolve("vacio.smile");
+    try (var a = JsonWriter.open(json); var b = JsonWriter.snapshot(smile)) {
+      a.commit();
+      b.commit();
+    }
+    var leidos = new ArrayList<ProyectoLeyMetadata>();
+    ProyectosLeyMetadata.readJson(json, leidos::add);
+    ProyectosLeyMetadata.readSnapshot(smile, leidos::add);
+    assertEquals(List.of(), leidos);
+  }
+
+  static void assertRoundTrip(List<ProyectoLeyMetadata> leidos) {
+    var escritos = proyectos();
+    assertEquals(escritos, leidos);
+    for (int i = 0; i < escritos.size(); i++) {
+      // equals ya compara los campos; el hash se recalcula al leer y debe coincidir
+      assertEquals(escritos.get(i).contentHash(), leidos.get(i).contentHash());
+    }
+  }
+}
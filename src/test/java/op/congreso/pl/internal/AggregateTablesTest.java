@@ -0,0 +1,177 @@
+package op.congreso.pl.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import op.congreso.pl.Periodo;
+import op.congreso.pl.ProyectosLeyMetadata;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Las tablas resumen que arma {@link AggregateTables} durante la carga deben ser las que daria un
+ * {@code group by} sobre las tablas base, tras una carga completa y tras un upsert que cambia,
+ * agrega y elimina proyectos.
+ */
+class AggregateTablesTest {
+
+  static final List<String> ESTADOS = List.of("PRESENTADO", "EN COMISIÓN", "DICTAMEN", "PUBLICADO");
+  static final List<String> COMISIONES = List.of("Economía", "Presupuesto", "Justicia");
+
+  // mismas reglas que las tablas resumen, escritas sobre las tablas base
+  static final Map<String, String> CONTEOS = Map.of(
+      "resumen_congresista",
+      "select congresista, firmante_tipo, count(*) from firmante group by 1, 2",
+      "resumen_comision",
+      "select ultima_comision, count(*) from proyecto_ley group by 1",
+      "resumen_estado",
+      "select ultimo_estado, count(*) from proyecto_ley group by 1",
+      "resumen_grupo_parlamentario",
+      "select grupo_parlamentario, count(*) from proyecto_ley group by 1",
+      "resumen_mes",
+      "select substr(presentacion_fecha, 1, 7), count(*) from proyecto_ley group by 1");
+  static final String TIEMPO_ESTADO = """
+      select estado, count(*), avg(dias), min(dias), max(dias) from (
+        select s.estado,
+          cast(julianday(replace(min(s.fecha), '/', '-')) - julianday(p.presentacion_fecha)
+            as integer) as dias
+        from seguimiento s join proyecto_ley p on p.id = s.proyecto_ley_id
+        where s.estado is not null
+        group by s.proyecto_ley_id, s.estado)
+      group by estado""";
+
+  @TempDir Path dir;
+
+  @Test void cargaCompleta() throws SQLException {
+    var db = dir.resolve("periodo.db");
+    load(db, false, proyectos(new Random(1), 1, 300));
+    assertEqualResumen(db);
+  }
+
+  @Test void upsert() throws SQLException {
+    var db = dir.resolve("periodo.db");
+    var random = new Random(2);
+    var anteriores = proyectos(random, 1, 300);
+    load(db, false, anteriores);
+
+    // 1-200 siguen (la mitad cambia), 201-300 se eliminan, 301-350 son nuevos
+    var cambiados = proyectos(random, 1, 200);
+    var actuales = new ArrayList<ProyectosLeyMetadata.ProyectoLeyMetadata>();
+    for (int i = 0; i < 200; i++) {
+      actuales.add(i % 2 == 0 ? anteriores.get(i) : cambiados.get(i));
+    }
+    actuales.addAll(proyectos(random, 301, 350));
+    load(db, true, actuales);
+
+    assertEquals(250, count(db, "select count(*) from proyecto_ley"));
+    assertEquals(0, count(db, "select count(*) from proyecto_ley where numero between 201 and 300"));
+    assertEqualResumen(db);
+  }
+
+  static void load(Path db, boolean upsert, List<ProyectosLeyMetadata.ProyectoLeyMetadata> proyectos)
+      throws SQLException {
+    try (var loader = ProyectosLeyLoadSqlite.open(db, upsert)) {
+      proyectos.forEach(loader);
+      loader.commit();
+    }
+  }
+
+  static void assertEqualResumen(Path db) throws SQLException {
+    for (var e : CONTEOS.entrySet()) {
+      var resumen = rows(db, "select * from " + e.getKey());
+      assertFalse(resumen.isEmpty(), e.getKey());
+      assertEquals(rows(db, e.getValue()), resumen, e.getKey());
+    }
+    var resumen = rows(db, "select * from resumen_tiempo_estado");
+    assertFalse(resumen.isEmpty());
+    assertEquals(rows(db, TIEMPO_ESTADO), resumen, "resumen_tiempo_estado");
+  }
+
+  /** Filas sin orden: cada fila como lista de textos, con el promedio redondeado. */
+  static Map<List<String>, Integer> rows(Path db, String sql) throws SQLException {
+    var rows = new HashMap<List<String>, Integer>();
+    try (var connection = DriverManager.getConnection("jdbc:sqlite:" + db);
+        var rs = connection.createStatement().executeQuery(sql)) {
+      var columns = rs.getMetaData().getColumnCount();
+      while (rs.next()) {
+        var row = new ArrayList<String>();
+        for (int i = 1; i <= columns; i++) {
+          var value = rs.getObject(i);
+          row.add(value instanceof Double d ? "%.6f".formatted(d)
+              : value == null ? null : value.toString());
+        }
+        rows.merge(row, 1, Integer::sum);
+      }
+    }
+    return rows;
+  }
+
+  static long count(Path db, String sql) throws SQLException {
+    try (var connection = DriverManager.getConnection("jdbc:sqlite:" + db);
+        var rs = connection.createStatement().executeQuery(sql)) {
+      return rs.getLong(1);
+    }
+  }
+
+  /** Proyectos {@code desde}-{@code hasta} con valores repetidos, ausentes y firmantes compartidos. */
+  static List<ProyectosLeyMetadata.ProyectoLeyMetadata> proyectos(Random random, int desde,
+      int hasta) {
+    var proyectos = new ArrayList<ProyectosLeyMetadata.ProyectoLeyMetadata>();
+    for (int n = desde; n <= hasta; n++) {
+      var presentacion = LocalDate.of(2021, 8, 1).plusDays(random.nextInt(400));
+      var coAutores = new LinkedHashSet<ProyectosLeyMetadata.Congresista>();
+      for (int j = random.nextInt(4); j > 0; j--) coAutores.add(congresista(random.nextInt(12)));
+      var adherentes = new LinkedHashSet<ProyectosLeyMetadata.Congresista>();
+      for (int j = random.nextInt(3); j > 0; j--) adherentes.add(congresista(random.nextInt(12)));
+      var seguimientos = new LinkedHashSet<ProyectosLeyMetadata.Seguimiento>();
+      for (int j = random.nextInt(6); j > 0; j--) {
+        seguimientos.add(new ProyectosLeyMetadata.Seguimiento(
+            presentacion.plusDays(random.nextInt(200)),
+            "Seguimiento " + j,
+            random.nextInt(5) == 0 ? Optional.empty() : Optional.of(elegir(random, ESTADOS)),
+            random.nextBoolean() ? Optional.empty() : Optional.of(elegir(random, COMISIONES))));
+      }
+      proyectos.add(new ProyectosLeyMetadata.ProyectoLeyMetadata(
+          Periodo._2021_2026,
+          n,
+          Optional.of("%05d/2021-CR".formatted(n)),
+          "Proyecto " + n,
+          elegir(random, ESTADOS),
+          presentacion,
+          Optional.empty(),
+          Optional.of("Congreso"),
+          Optional.empty(),
+          random.nextInt(4) == 0 ? Optional.empty() : Optional.of("GRUPO " + random.nextInt(5)),
+          random.nextInt(5) == 0 ? Optional.empty() : Optional.of(congresista(random.nextInt(12))),
+          coAutores,
+          adherentes,
+          seguimientos,
+          Set.of(),
+          random.nextInt(3) == 0 ? Optional.empty() : Optional.of(elegir(random, COMISIONES)),
+          Optional.empty(),
+          Set.of()));
+    }
+    return proyectos;
+  }
+
+  static ProyectosLeyMetadata.Congresista congresista(int k) {
+    return new ProyectosLeyMetadata.Congresista("Congresista " + k, Optional.empty(),
+        Optional.empty(), Optional.empty());
+  }
+
+  static String elegir(Random random, List<String> values) {
+    return values.get(random.nextInt(values.size()));
+  }
+}
@@ -0,0 +1,153 @@
+package op.congreso.pl.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import op.congreso.pl.Periodo;
+import op.congreso.pl.ProyectosLey;
+import org.jsoup.Jsoup;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link DominoHtml} debe dar lo mismo que los selectores de Jsoup a los que reemplaza: sobre las
+ * paginas grabadas en {@code fixtures/}, sus variantes mal formadas y cualquier truncamiento.
+ */
+class DominoHtmlTest {
+
+  static final ProyectosLey.ProyectoLey PL = new ProyectosLey.ProyectoLey(Periodo._2011_2016, 4066,
+      Optional.empty(), LocalDate.of(2014, 10, 12), "EN COMISIÓN", "LEY",
+      Periodo._2011_2016.baseUrl() + "/4066");
+  static final String LISTA_URL = Periodo._2011_2016.baseUrl() + "&Start=1";
+
+  final ProyectosLeyMetadataExtractionV1.ProyectoLeyMetadataExtraction expediente =
+      new ProyectosLeyMetadataExtractionV1.ProyectoLeyMetadataExtraction();
+  final ProyectosLeyExtractionV1 lista = new ProyectosLeyExtractionV1();
+
+  @Test void expedienteGrabado() {
+    var html = fixture("v1-expediente.html");
+    var m = expediente.parse(PL, html, Optional.empty());
+    assertEquals(9, m.seguimientos().size());
+    assertEqualExpediente("grabado", html, Optional.empty());
+    assertEqualExpediente("charset de la cabecera", html, Optional.of("ISO-8859-1"));
+  }
+
+  @Test void expedienteMalFormado() {
+    var html = texto("v1-expediente.html");
+    var variantes = List.of(
+        // sin fila de seguimiento: se lee "Envío a Comisión:"
+        html.replaceFirst("(?s)<tr valign=\"top\"><td colspan=\"2\">.*?</tr>",
+            "<tr><td><b>Env&iacute;o a Comisi&oacute;n:</b> <font size=3>Econom&iacute;a</font>"
+                + "<font size=\"3\">Presupuesto</font></td></tr>"),
+        html.replaceFirst("(?s)<tr valign=\"top\"><td colspan=\"2\">.*?</tr>", ""),
+        html.replace("<input name=\"CodIni\" type=\"hidden\" value=\"4066\">", ""),
+        html.toUpperCase(),
+        html.replace("\"", ""),
+        html.replace("\"", "'"),
+        html.replace("</td>", "").replace("</tr>", "").replace("</font>", ""),
+        html.replace("<tr", "<!-- <tr --><tr").replace("<b>", "<script>var s = '<tr>';</script><b>"),
+        html.replace("Seguimiento:", "Seguimiento:&nbsp;&amp;&lt;&#233;&#x41;&#150;&copy&bogus;"),
+        html.replace("value=\"4066\"", "value=\"4066\" value=\"9999\"")
+            .replace("<input name=\"TitIni\"", "<input name=\"titini\" value=\"otro\"><input name=\"TitIni\""),
+        html.replace("<table border=\"0\" width=\"100%\">",
+            "<table border=\"0\" width=\"100%\"><tr><td><table><tr><td>anidada</td></tr></table>"),
+        "<html><body><p>Pagina de error del servidor</p></body></html>",
+        "");
+    for (int i = 0; i < variantes.size(); i++) {
+      assertEqualExpediente("variante " + i,
+          variantes.get(i).getBytes(StandardCharsets.ISO_8859_1), Optional.empty());
+    }
+  }
+
+  @Test void expedienteTruncado() {
+    var html = fixture("v1-expediente.html");
+    for (int n = 0; n <= html.length; n++) {
+      var truncado = Arrays.copyOf(html, n);
+      assertEqualExpediente("truncado en " + n, truncado, Optional.empty());
+    }
+  }
+
+  @Test void listaGrabada() {
+    var html = fixture("v1-lista.html");
+    assertEquals(500, lista.parsePaginaProyectos(Periodo._2011_2016, LISTA_URL, html,
+        Optional.empty()).size());
+    assertEqualLista("grabada", html);
+  }
+
+  @Test void listaMalFormada() {
+    var html = texto("v1-lista.html");
+    var variantes = List.of(
+        html.toUpperCase(),
+        html.replace("\"", ""),
+        html.replace("</td>", "").replace("</font>", ""),
+        html.replace("cellpadding=\"2\"", "cellpadding=\" 2 \""),
+        html.replace("cellpadding=\"2\"", "cellpadding=\"3\""),
+        html.replaceFirst("<td><font size=\"2\">11/02/2015</font></td>", "<td></td>"),
+        html.replaceFirst("<a href=\"[^\"]*\">04002</a>", "04002"),
+        html.replaceFirst("02/14/2014", "2014-02-14"),
+        html.replaceFirst("<tr valign=\"top\">", "<tr valign=\"top\"><td><table><tr valign=\"top\">"
+            + "<td>x</td></tr></table></td></tr><tr valign=\"top\">"),
+        html.replace("<tr valign=\"bottom\">", "<!-- <table cellpadding=2> --><tr valign=\"bottom\">"));
+    for (int i = 0; i < variantes.size(); i++) {
+      assertEqualLista("variante " + i, variantes.get(i).getBytes(StandardCharsets.ISO_8859_1));
+    }
+  }
+
+  @Test void listaTruncada() {
+    var html = fixture("v1-lista.html");
+    // cada byte hasta pasada la primera fila; despues, cortes espaciados dentro de las filas
+    var cortes = new ArrayList<Integer>();
+    for (int n = 0; n < 1200; n++) cortes.add(n);
+    for (int n = 1200; n < html.length; n += 997) cortes.add(n);
+    for (var n : cortes) {
+      assertEqualLista("truncada en " + n, Arrays.copyOf(html, n));
+    }
+  }
+
+  void assertEqualExpediente(String caso, byte[] html, Optional<String> charset) {
+    var domino = resultado(() -> expediente.parse(PL, html, charset));
+    var jsoup = resultado(() -> expediente.parse(PL,
+        Jsoup.parse(new ByteArrayInputStream(html), charset.orElse(null), PL.url())));
+    assertEquals(jsoup, domino, caso);
+  }
+
+  void assertEqualLista(String caso, byte[] html) {
+    var domino = resultado(() -> lista.parsePaginaProyectos(Periodo._2011_2016, LISTA_URL, html,
+        Optional.empty()));
+    var jsoup = resultado(() -> lista.parsePaginaProyectos(Periodo._2011_2016,
+        Jsoup.parse(new ByteArrayInputStream(html), null, LISTA_URL)));
+    assertEquals(jsoup, domino, caso);
+  }
+
+  /** El resultado o, si falla, solo el hecho de fallar: los mensajes difieren entre parsers. */
+  static Object resultado(Callable<?> parse) {
+    try {
+      var r = parse.call();
+      assertFalse(r == null);
+      return r;
+    } catch (Exception e) {
+      return "falla";
+    }
+  }
+
+  static byte[] fixture(String name) {
+    try (var in = DominoHtmlTest.class.getResourceAsStream("/fixtures/" + name)) {
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static String texto(String name) {
+    return new String(fixture(name), StandardCharsets.ISO_8859_1);
+  }
+}
@@ -0,0 +1,60 @@
+package op.congreso.pl.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * La importacion de los siete periodos cabe en 256 MB de heap: {@link ImportHarness} en otra JVM
+ * con {@code -Xmx256m}, completa y luego incremental, contra un {@link ReplayServer} con
+ * {@code import.proyectos} proyectos sinteticos por periodo (por defecto 2000, para que
+ * {@code mvn test} no tarde; {@code make import-acotado} usa 10000).
+ */
+class ImportAcotadoTest {
+
+  static final int PROYECTOS = Integer.getInteger("import.proyectos", 2000);
+
+  @TempDir Path dir;
+
+  @Test void completaEIncrementalCon256MB() throws Exception {
+    // el mismo puerto en las dos corridas, para que la incremental reutilice la completa
+    int port;
+    try (var socket = new ServerSocket(0)) {
+      port = socket.getLocalPort();
+    }
+    importar(port, "--acotado", "--db");
+    importar(port, "--acotado", "--db", "--incremental");
+  }
+
+  void importar(int port, String... args) throws IOException, InterruptedException {
+    var comando = new ArrayList<>(List.of(
+        Path.of(System.getProperty("java.home"), "bin", "java").toString(),
+        "-Xmx256m",
+        "-XX:+ExitOnOutOfMemoryError",
+        "-Dcongreso.replay.proyectos=" + PROYECTOS,
+        "-Dcongreso.replay.port=" + port,
+        "-cp", System.getProperty("java.class.path"),
+        ImportHarness.class.getName()));
+    comando.addAll(List.of(args));
+    var salida = dir.resolve("salida.txt");
+    var proceso = new ProcessBuilder(comando)
+        .directory(dir.toFile())
+        .redirectErrorStream(true)
+        .redirectOutput(salida.toFile())
+        .start();
+    if (!proceso.waitFor(20, TimeUnit.MINUTES)) {
+      proceso.destroyForcibly();
+      throw new AssertionError("importacion sin terminar: " + Files.readString(salida));
+    }
+    // 3 es OutOfMemoryError, 1 algun periodo sin importar
+    assertEquals(0, proceso.exitValue(), Files.readString(salida));
+  }
+}
@@ -0,0 +1,53 @@
+package op.congreso.pl.internal;
+
+import java.nio.file.Files;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.ArrayList;
+import op.congreso.pl.Import;
+import op.congreso.pl.Periodo;
+
+/**
+ * Importacion completa ({@link Import}) de todos los periodos contra un {@link ReplayServer} local,
+ * en el directorio actual. Los argumentos se pasan a {@code Import} (p. ej. {@code --acotado
+ * --incremental}). Al terminar reporta el RSS maximo, el heap maximo tras GC y el tiempo de GC, y
+ * falla si algun periodo no publico su lista: corrido con {@code -Xmx256m}, comprueba que la
+ * importacion cabe en ese heap.
+ *
+ * <p>El servidor escucha en {@code congreso.replay.port} (18080): con un puerto fijo las URLs no
+ * cambian entre corridas, y una segunda corrida {@code --incremental} reutiliza la primera.
+ */
+public class ImportHarness {
+
+  public static void main(String[] args) throws Exception {
+    var port = Integer.getInteger("congreso.replay.port", 18080);
+    var fallidos = new ArrayList<String>();
+    try (var server = new ReplayServer(port, ReplayServer.Config.fromSystemProperties())) {
+      System.setProperty("congreso.url.v1", "http://127.0.0.1:" + server.port());
+      System.setProperty("congreso.url.v2", "http://localhost:" + server.port());
+      if (System.getProperty("congreso.cache.maxBytes") == null) {
+        System.setProperty("congreso.cache.maxBytes", "0");
+      }
+      server.start();
+
+      var inicio = FileTime.from(Instant.now());
+      var start = System.nanoTime();
+      Import.main(args);
+      System.out.printf("importacion en %.1f s%n", (System.nanoTime() - start) / 1e9);
+      System.out.println(server.resumen());
+      System.out.println(ProcessUsage.actual());
+      // la lista se publica siempre, tambien cuando el periodo no cambio
+      for (var periodo : Periodo.values()) {
+        var lista = periodo.listaPath();
+        if (!Files.exists(lista) || Files.getLastModifiedTime(lista).compareTo(inicio) < 0) {
+          fallidos.add(periodo.texto());
+        }
+      }
+    }
+    if (!fallidos.isEmpty()) {
+      System.out.println("periodos sin importar: " + fallidos);
+      System.exit(1);
+    }
+    System.exit(0);
+  }
+}
@@ -0,0 +1,27 @@
+package op.congreso.pl.internal;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+/** {@link ProcessUsage} mide el heap retenido en el instante de cada GC. */
+class ProcessUsageTest {
+
+  @Test void heapTrasGc() throws InterruptedException {
+    ProcessUsage.vigilar();
+    // 64 MB retenidos durante una coleccion completa
+    var retenido = new ArrayList<byte[]>();
+    for (int i = 0; i < 64; i++) retenido.add(new byte[1 << 20]);
+    System.gc();
+    // las notificaciones de GC llegan en otro hilo
+    for (int i = 0; i < 50 && ProcessUsage.peakHeapAfterGc.get() < 64L << 20; i++) {
+      Thread.sleep(100);
+    }
+    var usage = ProcessUsage.actual();
+    // retenido sigue vivo hasta aqui
+    assertTrue(retenido.size() == 64);
+    assertTrue(usage.peakHeapAfterGcBytes() >= 64L << 20, usage.toString());
+    assertTrue(usage.peakHeapAfterGcBytes() <= usage.heapPoolPeaksSumBytes(), usage.toString());
+  }
+}
@@ -0,0 +1,71 @@
+package op.congreso.pl.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import op.congreso.pl.Periodo;
+import op.congreso.pl.ProyectosLey;
+import op.congreso.pl.ProyectosLeyMetadata;
+import org.junit.jupiter.api.Test;
+
+/**
+ * {@link ProyectosLeyDelta} une la lista con la linea base por el numero de la lista, tambien en el
+ * V2, donde el {@code pleyId} del expediente es otro numero.
+ */
+class ProyectosLeyDeltaTest {
+
+  // la fila de la lista del fixture v2-expediente.json: pleyNum 1234, pleyId 98765
+  static final ProyectosLey.ProyectoLey PL = new ProyectosLey.ProyectoLey(Periodo._2021_2026, 1234,
+      Optional.empty(), LocalDate.of(2022, 2, 10), "PUBLICADA EN EL DIARIO OFICIAL EL PERUANO",
+      "LEY QUE PROMUEVE LA FORMALIZACIÓN DE LAS MICRO Y PEQUEÑAS EMPRESAS",
+      Periodo._2021_2026.baseUrl() + "/1234");
+
+  static ProyectosLeyMetadata.ProyectoLeyMetadata expediente() {
+    return new ProyectosLeyMetadataExtractionV2.ProyectoLeyMetadataExtraction()
+        .parse(PL, DominoHtmlTest.fixture("v2-expediente.json"));
+  }
+
+  static ProyectosLey lista(ProyectosLey.ProyectoLey pl) {
+    var lista = new ProyectosLey(pl.periodo());
+    lista.addAll(new LinkedHashSet<>(List.of(pl)));
+    return lista;
+  }
+
+  @Test void numeroDeLaListaEnElV2() {
+    var expediente = expediente();
+    assertEquals(1234, expediente.numero());
+
+    var delta = new ProyectosLeyDelta(lista(PL), base(expediente), l -> {
+      throw new AssertionError("sin cambios no se extrae nada");
+    });
+    assertEquals(Optional.of(expediente), delta.reutilizable(PL));
+  }
+
+  @Test void lineaBaseConPleyId() {
+    // una linea base anterior guardo el expediente del 1234 bajo su pleyId; la fila 98765 de la
+    // lista es otro proyecto y no puede reutilizarlo
+    var e = expediente();
+    var guardado = new ProyectosLeyMetadata.ProyectoLeyMetadata(e.periodo(), 98765,
+        e.numeroPeriodo(), e.titulo(), e.estadoActual(), e.fechaPresentacion(), e.legislatura(),
+        e.proponente(), e.sumilla(), e.grupoParlamentario(), e.autor(), e.coAutores(),
+        e.adherentes(), e.seguimientos(), e.comisiones(), e.comisionActual(), e.urlExpediente(),
+        e.iniciativasAgrupadas());
+    var otro = new ProyectosLey.ProyectoLey(PL.periodo(), 98765, Optional.empty(),
+        PL.presentacion(), PL.estado(), PL.titulo(), PL.periodo().baseUrl() + "/98765");
+
+    var delta = new ProyectosLeyDelta(lista(otro), base(guardado), l -> {
+      throw new AssertionError();
+    });
+    assertTrue(delta.reutilizable(otro).isEmpty());
+  }
+
+  static ProyectosLeyMetadata base(ProyectosLeyMetadata.ProyectoLeyMetadata pl) {
+    var base = new ProyectosLeyMetadata(pl.periodo());
+    base.addAll(new LinkedHashSet<>(List.of(pl)));
+    return base;
+  }
+}
@@ -0,0 +1,59 @@
+package op.congreso.pl.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/** {@link ProyectosLeyLoadSqlite#merge} sobre bases de periodo con esquemas de versiones anteriores. */
+class ProyectosLeyLoadSqliteTest {
+
+  @TempDir Path dir;
+
+  @Test void mergeBasesAnteriores() throws SQLException, IOException {
+    var random = new Random(3);
+    var actual = dir.resolve("actual.db");
+    AggregateTablesTest.load(actual, false, AggregateTablesTest.proyectos(random, 1, 100));
+    // creada antes de la columna hash
+    var sinHash = dir.resolve("sin-hash.db");
+    AggregateTablesTest.load(sinHash, false, AggregateTablesTest.proyectos(random, 101, 200));
+    execute(sinHash, "alter table proyecto_ley drop column hash");
+    // hash agregado con alter table: otra posicion que en una base nueva
+    var hashPrimero = dir.resolve("hash-primero.db");
+    AggregateTablesTest.load(hashPrimero, false, AggregateTablesTest.proyectos(random, 201, 300));
+    execute(hashPrimero, "create table anterior as select hash, * from proyecto_ley");
+    execute(hashPrimero, "drop table proyecto_ley");
+    execute(hashPrimero, "alter table anterior drop column \"hash:1\"");
+    execute(hashPrimero, "alter table anterior rename to proyecto_ley");
+    var hashes = AggregateTablesTest.rows(hashPrimero, "select id, hash from proyecto_ley");
+
+    var combinada = dir.resolve("combinada.db");
+    ProyectosLeyLoadSqlite.merge(combinada, List.of(actual, sinHash, hashPrimero));
+
+    assertEquals(300, AggregateTablesTest.count(combinada, "select count(*) from proyecto_ley"));
+    assertEquals(100, AggregateTablesTest.count(combinada,
+        "select count(*) from proyecto_ley where hash is null"));
+    assertEquals(0, AggregateTablesTest.count(combinada,
+        "select count(*) from proyecto_ley where hash is null and numero not between 101 and 200"));
+    assertEquals(hashes, AggregateTablesTest.rows(combinada,
+        "select id, hash from proyecto_ley where numero between 201 and 300"));
+    // las demas columnas siguen en su lugar
+    assertEquals(
+        AggregateTablesTest.rows(hashPrimero, "select id, titulo, ultimo_estado from proyecto_ley"),
+        AggregateTablesTest.rows(combinada,
+            "select id, titulo, ultimo_estado from proyecto_ley where numero between 201 and 300"));
+  }
+
+  static void execute(Path db, String sql) throws SQLException {
+    try (var connection = DriverManager.getConnection("jdbc:sqlite:" + db);
+        var statement = connection.createStatement()) {
+      statement.executeUpdate(sql);
+    }
+  }
+}
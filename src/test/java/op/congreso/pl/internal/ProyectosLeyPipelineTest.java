@@ -0,0 +1,131 @@
+package op.congreso.pl.internal;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import op.congreso.pl.Periodo;
+import op.congreso.pl.ProyectosLey;
+import op.congreso.pl.ProyectosLeyMetadata;
+import org.junit.jupiter.api.Test;
+
+/** {@link ProyectosLeyPipeline} con lista y expedientes en memoria, sin red. */
+class ProyectosLeyPipelineTest {
+
+  static final Periodo PERIODO = Periodo._2021_2026;
+
+  static ProyectosLey.ProyectoLey pl(int numero) {
+    return new ProyectosLey.ProyectoLey(PERIODO, numero, Optional.empty(),
+        LocalDate.of(2021, 8, 1), "PRESENTADO", "Proyecto " + numero,
+        PERIODO.baseUrl() + "/" + numero);
+  }
+
+  /** Lista de una sola pagina con los proyectos 1 a {@code n}. */
+  static ProyectosLeyExtraction lista(int n) {
+    var todos = new LinkedHashSet<ProyectosLey.ProyectoLey>();
+    for (int i = 1; i <= n; i++) todos.add(pl(i));
+    return lista(todos);
+  }
+
+  static ProyectosLeyExtraction lista(Set<ProyectosLey.ProyectoLey> todos) {
+    return (periodo, pagina) -> {
+      var pls = new ProyectosLey(periodo);
+      pls.addAll(todos);
+      pagina.accept(todos);
+      return pls;
+    };
+  }
+
+  /** Expediente completo, distinto del de respaldo que se arma solo con la lista. */
+  static ProyectosLeyMetadata.ProyectoLeyMetadata expediente(ProyectosLey.ProyectoLey pl) {
+    return new ProyectosLeyMetadata.ProyectoLeyMetadata(pl.periodo(), pl.numero(),
+        Optional.of("%05d/2021-CR".formatted(pl.numero())), pl.titulo(), pl.estado(),
+        pl.presentacion(), Optional.empty(), Optional.empty(), Optional.of("Sumilla"),
+        Optional.empty(), Optional.empty(), Set.of(), Set.of(), Set.of(), Set.of(),
+        Optional.empty(), Optional.of(pl.url()), Set.of());
+  }
+
+  static ProyectosLeyMetadataExtraction expedientes(
+      Function<ProyectosLey.ProyectoLey, ProyectosLeyMetadata.ProyectoLeyMetadata> fetch) {
+    return expedientes("pipeline-test", fetch);
+  }
+
+  static ProyectosLeyMetadataExtraction expedientes(String host,
+      Function<ProyectosLey.ProyectoLey, ProyectosLeyMetadata.ProyectoLeyMetadata> fetch) {
+    return new ProyectosLeyMetadataExtraction() {
+      @Override public String host() {
+        return host;
+      }
+
+      @Override public ProyectosLeyMetadata.ProyectoLeyMetadata fetch(ProyectosLey.ProyectoLey pl) {
+        return fetch.apply(pl);
+      }
+    };
+  }
+
+  @Test void consultasCaidasConColaLlena() {
+    // las consultas mueren con el primer proyecto y la pagina llena justo la cola de pendientes:
+    // el fin de lista ya no tiene lugar y run() debe fallar en lugar de esperar para siempre
+    var pipeline = new ProyectosLeyPipeline(lista(1025),
+        expedientes(ProyectosLeyMetadata.ProyectoLeyMetadata::from), pl -> {
+          throw new IllegalStateException("base anterior ilegible");
+        });
+    Consumer<ProyectosLeyMetadata.ProyectoLeyMetadata> sink = m -> {};
+    assertTimeoutPreemptively(Duration.ofSeconds(30),
+        () -> assertThrows(RuntimeException.class, () -> pipeline.run(PERIODO, sink)));
+  }
+
+  @Test void fallidoSeVuelveAConsultar() {
+    // host propio: las fallas de este test no abren el circuito de los demas
+    var host = "pipeline-test-fallido";
+    var filas = new LinkedHashSet<ProyectosLey.ProyectoLey>();
+    for (int i = 1; i <= 20; i++) filas.add(pl(i));
+    var primera = new ProyectosLeyMetadata(PERIODO);
+    var lista1 = new ProyectosLeyPipeline(lista(filas),
+        expedientes(host, ProyectosLeyPipelineTest::expediente))
+        .run(PERIODO, m -> primera.addAll(Set.of(m)));
+
+    // el 7 cambia en la lista y su expediente falla hasta el final: se publica el anterior, y un
+    // solo fallido no alcanza para dar el periodo por fallido
+    var cambiado = new ProyectosLey.ProyectoLey(PERIODO, 7, Optional.empty(),
+        LocalDate.of(2021, 8, 1), "EN COMISIÓN", "Proyecto 7", PERIODO.baseUrl() + "/7");
+    filas.remove(pl(7));
+    filas.add(cambiado);
+    var segunda = new ProyectosLeyMetadata(PERIODO);
+    var delta = new ProyectosLeyDelta(lista1, primera, l -> null);
+    var pipeline = new ProyectosLeyPipeline(lista(filas), expedientes(host, pl -> {
+      if (pl.numero() == 7) throw new IllegalStateException("503");
+      return expediente(pl);
+    }), delta::reutilizable, null, pl -> Optional.ofNullable(porNumero(primera, pl.numero())));
+    var lista2 = pipeline.run(PERIODO, m -> segunda.addAll(Set.of(m)));
+    assertEquals(porNumero(primera, 7), porNumero(segunda, 7));
+    assertEquals(Set.of(7), pipeline.sinMetadatos());
+
+    // la lista publicada ya tiene la fila nueva: sin los fallidos guardados, el expediente viejo
+    // se reutilizaria para siempre
+    var consultados = new ConcurrentLinkedQueue<Integer>();
+    var siguiente = new ProyectosLeyDelta(lista2, segunda, l -> null)
+        .sinMetadatos(pipeline.sinMetadatos());
+    var tercera = new ProyectosLeyMetadata(PERIODO);
+    new ProyectosLeyPipeline(lista(filas), expedientes(host, pl -> {
+      consultados.add(pl.numero());
+      return expediente(pl);
+    }), siguiente::reutilizable).run(PERIODO, m -> tercera.addAll(Set.of(m)));
+    assertEquals(List.of(7), List.copyOf(consultados));
+    assertEquals(expediente(cambiado), porNumero(tercera, 7));
+  }
+
+  static ProyectosLeyMetadata.ProyectoLeyMetadata porNumero(ProyectosLeyMetadata meta,
+      int numero) {
+    return meta.proyectos().stream().filter(m -> m.numero() == numero).findAny().orElse(null);
+  }
+}
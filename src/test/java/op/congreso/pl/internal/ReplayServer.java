@@ -0,0 +1,320 @@
+package op.congreso.pl.internal;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPOutputStream;
+import op.congreso.pl.Periodo;
+
+/**
+ * Servidor HTTP local que reemplaza a www2 (paginas Domino V1) y wb2server (lista-con-filtro y
+ * expediente V2) para medir la extraccion sin red. Responde con las respuestas grabadas en la cache
+ * HTTP ({@code congreso.replay.recordings}, el directorio de {@code congreso.cache.dir}) y, para lo
+ * que no este grabado, con periodos sinteticos de {@code congreso.replay.proyectos} proyectos
+ * armados a partir de los fixtures. Se le puede agregar latencia, errores 503, 404 en expedientes
+ * y una cola de respuestas lentas. Comprime con gzip si el cliente lo acepta
+ * ({@code congreso.replay.gzip=false} para no hacerlo).
+ */
+public class ReplayServer implements AutoCloseable {
+
+  static final String PRODUCCION_V1 = "https://www2.congreso.gob.pe";
+  static final String PRODUCCION_V2 = "https://wb2server.congreso.gob.pe";
+
+  static final Pattern LISTA_V1 = Pattern.compile("/CLProLey(\\d{4})\\.nsf/[^/]+$");
+  static final Pattern EXPEDIENTE_V1 = Pattern.compile("/CLProLey(\\d{4})\\.nsf/replay/(\\d+)$");
+  static final Pattern EXPEDIENTE_V2 = Pattern.compile("/expediente/(\\d{4})/(\\d+)$");
+  static final Pattern START = Pattern.compile("Start=(\\d+)");
+  static final DateTimeFormatter FECHA_V1 = DateTimeFormatter.ofPattern("MM/dd/yyyy");
+
+  static final ObjectMapper mapper = new ObjectMapper();
+
+  final Config config;
+  final HttpServer server;
+  final ExecutorService executor = Executors.newCachedThreadPool(r -> {
+    var t = new Thread(r, "replay");
+    t.setDaemon(true);
+    return t;
+  });
+  final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+    var t = new Thread(r, "replay-latencia");
+    t.setDaemon(true);
+    return t;
+  });
+  final Random random;
+  // respuestas por estado, para el reporte
+  final Map<Integer, LongAdder> respuestas = new ConcurrentHashMap<>();
+  final LongAdder grabadas = new LongAdder();
+  final LongAdder bytes = new LongAdder();
+
+  final String expedienteV1 = new String(fixture("v1-expediente.html"),
+      StandardCharsets.ISO_8859_1);
+  final ObjectNode expedienteV2;
+
+  public ReplayServer(int port, Config config) throws IOException {
+    this.config = config;
+    this.random = new Random(config.seed());
+    this.expedienteV2 = (ObjectNode) mapper.readTree(fixture("v2-expediente.json"));
+    this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+    server.setExecutor(executor);
+    server.createContext("/", this::handle);
+  }
+
+  public int port() {
+    return server.getAddress().getPort();
+  }
+
+  public ReplayServer start() {
+    server.start();
+    return this;
+  }
+
+  @Override public void close() {
+    server.stop(0);
+    scheduler.shutdownNow();
+    executor.shutdownNow();
+  }
+
+  /** Respuestas por codigo de estado, cuantas vinieron de grabaciones y bytes enviados. */
+  public String resumen() {
+    var conteo = new TreeMap<Integer, Long>();
+    respuestas.forEach((status, n) -> conteo.put(status, n.sum()));
+    return "respuestas %s, grabadas %d, %d KB enviados".formatted(conteo, grabadas.sum(),
+        bytes.sum() / 1024);
+  }
+
+  void handle(HttpExchange exchange) throws IOException {
+    var path = exchange.getRequestURI().getPath();
+    var query = Optional.ofNullable(exchange.getRequestURI().getRawQuery()).orElse("");
+    var body = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    var expediente = EXPEDIENTE_V1.matcher(path).find() || EXPEDIENTE_V2.matcher(path).find()
+        || query.equals("OpenDocument");
+
+    double dado;
+    synchronized (random) {
+      dado = random.nextDouble();
+    }
+    var demora = config.latency();
+    if (dado < config.slowRate()) demora = demora.plus(config.slowLatency());
+
+    // la latencia se programa, sin retener un hilo por consulta: asi los hilos del proceso son los
+    // del cliente que se mide
+    scheduler.schedule(() -> executor.execute(() -> {
+      try (exchange) {
+        // el mismo dado para todas las fallas, para que las tasas no se solapen
+        if (dado < config.errorRate()) {
+          send(exchange, 503, "text/plain", "Service Unavailable".getBytes(StandardCharsets.UTF_8));
+        } else if (expediente && dado < config.errorRate() + config.notFoundRate()) {
+          send(exchange, 404, "text/plain", "Not Found".getBytes(StandardCharsets.UTF_8));
+        } else {
+          respond(exchange, path, query, body);
+        }
+      } catch (IOException e) {
+        // el cliente cerro la conexion
+      }
+    }), demora.toNanos(), TimeUnit.NANOSECONDS);
+  }
+
+  void respond(HttpExchange exchange, String path, String query, String body) throws IOException {
+    var method = exchange.getRequestMethod();
+    var grabada = grabada(method, path, query, body);
+    if (grabada.isPresent()) {
+      grabadas.increment();
+      send(exchange, 200, grabada.get().contentType(), grabada.get().body());
+      return;
+    }
+    var lista = LISTA_V1.matcher(path);
+    if (lista.find() && query.startsWith("OpenView")) {
+      var start = START.matcher(query);
+      var desde = start.find() ? Integer.parseInt(start.group(1)) : 1;
+      send(exchange, 200, "text/html; charset=iso-8859-1",
+          listaV1(Integer.parseInt(lista.group(1)), desde).getBytes(StandardCharsets.ISO_8859_1));
+      return;
+    }
+    var expedienteV1 = EXPEDIENTE_V1.matcher(path);
+    if (expedienteV1.find()) {
+      send(exchange, 200, "text/html; charset=iso-8859-1",
+          expedienteV1(Integer.parseInt(expedienteV1.group(2))).getBytes(StandardCharsets.ISO_8859_1));
+      return;
+    }
+    if (path.endsWith("/proyecto-ley/lista-con-filtro") && method.equals("POST")) {
+      var periodo = mapper.readTree(body).get("perParId").asInt();
+      send(exchange, 200, "application/json", listaV2(periodo));
+      return;
+    }
+    var expedienteV2 = EXPEDIENTE_V2.matcher(path);
+    if (expedienteV2.find()) {
+      send(exchange, 200, "application/json",
+          expedienteV2(Integer.parseInt(expedienteV2.group(1)), Integer.parseInt(expedienteV2.group(2))));
+      return;
+    }
+    send(exchange, 404, "text/plain", "Not Found".getBytes(StandardCharsets.UTF_8));
+  }
+
+  /** Respuesta grabada en la cache HTTP para la misma consulta contra produccion. */
+  Optional<Grabada> grabada(String method, String path, String query, String body) throws IOException {
+    if (config.recordings() == null) return Optional.empty();
+    var base = path.startsWith("/Sicr/") ? PRODUCCION_V1 : PRODUCCION_V2;
+    // HttpCache calcula la clave sobre la URL original, con espacios
+    var url = base + path + (query.isEmpty() ? "" : "?" + query.replace("%20", " "));
+    var key = HttpCache.key(method, url, method.equals("POST") ? body : "");
+    var meta = config.recordings().resolve(key + ".meta");
+    var contenido = config.recordings().resolve(key + ".body");
+    if (!Files.exists(meta) || !Files.exists(contenido)) return Optional.empty();
+    var entry = mapper.readValue(meta.toFile(), HttpCache.Entry.class);
+    return Optional.of(new Grabada(entry.contentType(), Files.readAllBytes(contenido)));
+  }
+
+  String listaV1(int anio, int desde) {
+    var periodo = periodo(anio);
+    var hasta = Math.min(desde + periodo.batchSize() - 1, config.proyectos());
+    var html = new StringBuilder("""
+        <html>
+        <head>
+        <title>Proyectos de Ley</title>
+        <meta http-equiv="Content-Type" content="text/html; charset=iso-8859-1">
+        </head>
+        <body text="#000000" bgcolor="#FFFFFF">
+        <form action="">
+        <table border="0" cellpadding="2" cellspacing="0">
+        <tr valign="bottom"><th><b><font size="2">N&uacute;mero</font></b></th><th><b><font size="2">Fecha Ult. Modificaci&oacute;n</font></b></th><th><b><font size="2">Fecha Presentaci&oacute;n</font></b></th><th><b><font size="2">Estado</font></b></th><th><b><font size="2">T&iacute;tulo</font></b></th></tr>
+        """);
+    for (int numero = desde; numero <= hasta; numero++) {
+      var presentacion = LocalDate.of(anio, 8, 1).plusDays(numero % 1500);
+      html.append("<tr valign=\"top\"><td><font size=\"2\"><a href=\"/Sicr/TraDocEstProc/CLProLey")
+          .append(anio).append(".nsf/replay/").append(numero).append("?OpenDocument\">")
+          .append("%05d".formatted(numero)).append("</a></font></td>")
+          .append("<td><font size=\"2\">").append(presentacion.plusDays(90).format(FECHA_V1))
+          .append("</font></td><td><font size=\"2\">").append(presentacion.format(FECHA_V1))
+          .append("</font></td><td><font size=\"2\">EN COMISION</font></td>")
+          .append("<td><font size=\"2\">PROPONE MODIFICAR EL ART&Iacute;CULO ").append(numero)
+          .append(" DE LA LEY N&deg; 21542</font></td></tr>\n");
+    }
+    return html.append("</table>\n</form>\n</body>\n</html>\n").toString();
+  }
+
+  String expedienteV1(int numero) {
+    return expedienteV1
+        .replace("value=\"4066\"", "value=\"%d\"".formatted(numero))
+        .replace("04066/", "%05d/".formatted(numero));
+  }
+
+  byte[] listaV2(int anio) throws IOException {
+    var response = mapper.createObjectNode()
+        .put("code", 200)
+        .put("status", "success");
+    var proyectos = response.putObject("data").putArray("proyectos");
+    for (int numero = 1; numero <= config.proyectos(); numero++) {
+      proyectos.addObject()
+          .put("pleyNum", numero)
+          .put("fecPresentacion", LocalDate.of(anio, 8, 1).plusDays(numero % 1500) + "T00:00:00")
+          .put("desEstado", "EN COMISIÓN")
+          .put("titulo", "LEY QUE PROMUEVE LA FORMALIZACIÓN " + numero);
+    }
+    return mapper.writeValueAsBytes(response);
+  }
+
+  byte[] expedienteV2(int anio, int numero) throws IOException {
+    var response = expedienteV2.deepCopy();
+    ((ObjectNode) response.get("data").get("general"))
+        // como en el portal, el id interno no es el numero del proyecto
+        .put("pleyId", 100000 + numero)
+        .put("pleyNum", numero)
+        .put("perParId", anio)
+        .put("proyectoLey", "%05d/%d-CR".formatted(numero, anio));
+    return mapper.writeValueAsBytes(response);
+  }
+
+  /**
+   * Pagina de {@code fixtures/}. No usa {@link DominoHtmlTest#fixture}: cargar ese test inicializa
+   * {@link Periodo}, y con el las URLs base, antes de que {@link ImportHarness} las apunte aqui.
+   */
+  static byte[] fixture(String name) {
+    try (var in = ReplayServer.class.getResourceAsStream("/fixtures/" + name)) {
+      if (in == null) throw new IllegalArgumentException("Fixture no encontrado: " + name);
+      return in.readAllBytes();
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  static Periodo periodo(int anio) {
+    for (var periodo : Periodo.values()) if (periodo.desde() == anio) return periodo;
+    throw new IllegalArgumentException("Periodo no encontrado: " + anio);
+  }
+
+  void send(HttpExchange exchange, int status, String contentType, byte[] body) throws IOException {
+    respuestas.computeIfAbsent(status, s -> new LongAdder()).increment();
+    if (contentType != null) exchange.getResponseHeaders().set("Content-Type", contentType);
+    // como el portal, comprime si el cliente lo acepta
+    var encoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+    if (config.gzip() && encoding != null && encoding.contains("gzip")) {
+      var gzip = new ByteArrayOutputStream(body.length / 4);
+      try (var out = new GZIPOutputStream(gzip)) {
+        out.write(body);
+      }
+      body = gzip.toByteArray();
+      exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+    }
+    bytes.add(body.length);
+    exchange.sendResponseHeaders(status, body.length);
+    exchange.getResponseBody().write(body);
+  }
+
+  record Grabada(String contentType, byte[] body) {}
+
+  /** Configuracion desde propiedades {@code congreso.replay.*}. */
+  public record Config(
+      Path recordings,
+      int proyectos,
+      Duration latency,
+      double errorRate,
+      double notFoundRate,
+      double slowRate,
+      Duration slowLatency,
+      long seed,
+      boolean gzip
+  ) {
+    public static Config fromSystemProperties() {
+      var recordings = System.getProperty("congreso.replay.recordings");
+      return new Config(
+          recordings == null ? null : Path.of(recordings),
+          Integer.getInteger("congreso.replay.proyectos", 2000),
+          Duration.parse(System.getProperty("congreso.replay.latency", "PT0.02S")),
+          Double.parseDouble(System.getProperty("congreso.replay.errorRate", "0")),
+          Double.parseDouble(System.getProperty("congreso.replay.notFoundRate", "0")),
+          Double.parseDouble(System.getProperty("congreso.replay.slowRate", "0")),
+          Duration.parse(System.getProperty("congreso.replay.slowLatency", "PT2S")),
+          Long.getLong("congreso.replay.seed", 42),
+          Boolean.parseBoolean(System.getProperty("congreso.replay.gzip", "true")));
+    }
+  }
+
+  public static void main(String[] args) throws IOException {
+    var port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+    var server = new ReplayServer(port, Config.fromSystemProperties()).start();
+    System.out.printf("Replay en http://127.0.0.1:%d: -Dcongreso.url.v1=http://127.0.0.1:%d"
+        + " -Dcongreso.url.v2=http://localhost:%d%n", server.port(), server.port(), server.port());
+  }
+}